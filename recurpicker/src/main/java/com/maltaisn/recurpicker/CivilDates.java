@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import java.util.Calendar;
+
+/**
+ * Date arithmetic on epoch days (days since January 1st 1970) in the proleptic Gregorian calendar.
+ * Used by the recurrence engine instead of {@link Calendar}, which recomputes all of its fields
+ * on every change. Months are 0-based like {@link Calendar#MONTH} and days of week are
+ * {@link Calendar#SUNDAY} to {@link Calendar#SATURDAY}.
+ * <p>
+ * The Gregorian calendar repeats every 400 years, which are exactly 146097 days or 20871 weeks,
+ * so dates are found with lookups in tables for one 400-year cycle.
+ */
+final class CivilDates {
+
+    static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000;
+
+    // Range of epoch days returned for a time, about 2.7 million years before and after 1970.
+    // Dates in this range can be packed in an int and converted back to time in millis without overflow.
+    static final long MIN_EPOCH_DAY = -1000000000L;
+    static final long MAX_EPOCH_DAY = 1000000000L;
+
+    private static final int DAYS_PER_ERA = 146097;  // Days in 400 years
+    private static final int ERA_START_EPOCH_DAY = -719528;  // Epoch day of January 1st, year 0
+
+    // Day of cycle on which each year of the 400-year cycle starts, with the start of next cycle at the end
+    private static final int[] YEAR_STARTS = new int[401];
+
+    // Day of year on which each month starts, for common years then for leap years,
+    // with the length of the year at the end of each.
+    private static final short[] MONTH_STARTS = {
+            0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334, 365,
+            0, 31, 60, 91, 121, 152, 182, 213, 244, 274, 305, 335, 366,
+    };
+
+    static {
+        for (int i = 0; i < 400; i++) {
+            YEAR_STARTS[i + 1] = YEAR_STARTS[i] + (isLeapYear(i) ? 366 : 365);
+        }
+    }
+
+    private CivilDates() {
+        // Not instantiable
+    }
+
+    /**
+     * Get the epoch day of a date.
+     * @param year  any year.
+     * @param month month, 0 to 11.
+     * @param day   day of month, 1 to 31.
+     * @return the epoch day.
+     */
+    static long toEpochDay(int year, int month, int day) {
+        int era = floorDiv(year, 400);
+        int yearOfEra = year - era * 400;
+        return (long) era * DAYS_PER_ERA + ERA_START_EPOCH_DAY + YEAR_STARTS[yearOfEra]
+                + MONTH_STARTS[monthIndex(yearOfEra, month)] + day - 1;
+    }
+
+    /**
+     * Get the date of an epoch day.
+     * @param epochDay the epoch day, from {@link #MIN_EPOCH_DAY} to {@link #MAX_EPOCH_DAY}.
+     * @return the date packed in an int, use {@link #yearOf(int)}, {@link #monthOf(int)}
+     * and {@link #dayOf(int)} to unpack it.
+     */
+    static int toDate(long epochDay) {
+        long era = floorDiv(epochDay - ERA_START_EPOCH_DAY, DAYS_PER_ERA);
+        int dayOfEra = (int) (epochDay - ERA_START_EPOCH_DAY - era * DAYS_PER_ERA);
+
+        // Estimate is never after the year, and at most two years before
+        int yearOfEra = dayOfEra / 366;
+        while (YEAR_STARTS[yearOfEra + 1] <= dayOfEra) {
+            yearOfEra++;
+        }
+        int dayOfYear = dayOfEra - YEAR_STARTS[yearOfEra];
+
+        // Estimate is either the month or the month before
+        int month = dayOfYear >> 5;
+        int index = monthIndex(yearOfEra, month);
+        if (MONTH_STARTS[index + 1] <= dayOfYear) {
+            month++;
+            index++;
+        }
+        int day = dayOfYear - MONTH_STARTS[index] + 1;
+        return packDate((int) (era * 400) + yearOfEra, month, day);
+    }
+
+    /**
+     * @return index of a month in {@link #MONTH_STARTS}.
+     */
+    private static int monthIndex(int yearOfEra, int month) {
+        return YEAR_STARTS[yearOfEra + 1] - YEAR_STARTS[yearOfEra] == 366 ? month + 13 : month;
+    }
+
+    static int packDate(int year, int month, int day) {
+        return year << 9 | month << 5 | day;
+    }
+
+    static int yearOf(int date) {
+        return date >> 9;
+    }
+
+    static int monthOf(int date) {
+        return date >> 5 & 0xF;
+    }
+
+    static int dayOf(int date) {
+        return date & 0x1F;
+    }
+
+    /**
+     * Get the day of week of an epoch day.
+     * @param epochDay the epoch day.
+     * @return the day of week, {@link Calendar#SUNDAY} to {@link Calendar#SATURDAY}.
+     */
+    static int dayOfWeek(long epochDay) {
+        return (int) floorMod(epochDay + 4, 7) + 1;  // Epoch day 0 was a thursday
+    }
+
+    static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * Get the number of days in a month.
+     * @param year  any year.
+     * @param month month, 0 to 11.
+     * @return the number of days, 28 to 31.
+     */
+    static int lengthOfMonth(int year, int month) {
+        int index = monthIndex(year - floorDiv(year, 400) * 400, month);
+        return MONTH_STARTS[index + 1] - MONTH_STARTS[index];
+    }
+
+    /**
+     * Get the local epoch day of a time in a time zone.
+     * @param millis time in millis.
+     * @param zone   time zone of the date.
+     * @return the epoch day, clamped from {@link #MIN_EPOCH_DAY} to {@link #MAX_EPOCH_DAY}
+     * for times used as bounds, like {@link Long#MAX_VALUE}.
+     */
+    static long toEpochDay(long millis, ZoneOffsets zone) {
+        int offset = zone.getOffset(millis);
+        long local = millis + offset;
+        if (((millis ^ local) & (offset ^ local)) < 0) {
+            local = offset > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;  // Overflow, for times used as bounds
+        }
+        return Math.max(MIN_EPOCH_DAY, Math.min(floorDiv(local, MILLIS_PER_DAY), MAX_EPOCH_DAY));
+    }
+
+    /**
+     * Get the local time of day of a time in a time zone.
+     * @param millis time in millis.
+     * @param zone   time zone of the date.
+     * @return the time of day in millis.
+     */
+    static int toTimeOfDay(long millis, ZoneOffsets zone) {
+        return (int) floorMod(millis + zone.getOffset(millis), MILLIS_PER_DAY);
+    }
+
+    /**
+     * Get the time in millis of a local date and time in a time zone.
+     * Like {@link Calendar}, a local time skipped by a daylight saving transition is moved forward
+     * by the length of the transition and a repeated local time resolves to the first occurrence.
+     * @param epochDay  the local epoch day.
+     * @param timeOfDay the local time of day in millis.
+     * @param zone      time zone of the date.
+     * @return the time in millis.
+     */
+    static long toMillis(long epochDay, int timeOfDay, ZoneOffsets zone) {
+        long local = epochDay * MILLIS_PER_DAY + timeOfDay;
+        long estimate = local - zone.getRawOffset();
+        int offsetBefore = zone.getOffset(estimate - MILLIS_PER_DAY / 2);
+        int offsetAfter = zone.getOffset(estimate + MILLIS_PER_DAY / 2);
+        if (offsetBefore == offsetAfter) {
+            return local - offsetBefore;
+        }
+
+        // There's a transition around this time, local time may be repeated or skipped.
+        long before = local - offsetBefore;
+        long after = local - offsetAfter;
+        if (zone.getOffset(before) == offsetBefore) {
+            return zone.getOffset(after) == offsetAfter ? Math.min(before, after) : before;
+        } else if (zone.getOffset(after) == offsetAfter) {
+            return after;
+        }
+        return before;  // Skipped, use the offset before the transition
+    }
+
+    static int floorDiv(int x, int y) {
+        int q = x / y;
+        return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+    }
+
+    static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+    }
+
+    static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+
+}
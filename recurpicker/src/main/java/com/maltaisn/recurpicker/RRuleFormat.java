@@ -44,10 +44,11 @@ public class RRuleFormat {
         }
 
         StringBuilder rule = new StringBuilder();
+        Calendar start = r.toCalendar(r.getStartDate());
 
         // Start date
         rule.append("DTSTART=");
-        rule.append(getRRuleDate(r.startDate));
+        rule.append(getRRuleDate(start));
         rule.append(';');
 
         // Period
@@ -66,6 +67,12 @@ public class RRuleFormat {
             case Recurrence.YEARLY:
                 rule.append("YEARLY");
                 break;
+            case Recurrence.HOURLY:
+                rule.append("HOURLY");
+                break;
+            case Recurrence.MINUTELY:
+                rule.append("MINUTELY");
+                break;
         }
 
         // Frequency
@@ -78,33 +85,32 @@ public class RRuleFormat {
             case Recurrence.NONE:
             case Recurrence.DAILY:
                 break;
-            case Recurrence.WEEKLY:
-                rule.append("BYDAY=");
-                for (int i = 0; i < 7; i++) {
-                    if (r.isRepeatedOnDaysOfWeek(1 << (i + 1))) {
-                        rule.append(RRULE_BYDAY_VALUES[i]);
-                        rule.append(',');
-                    }
+            case Recurrence.HOURLY:
+            case Recurrence.MINUTELY:
+                if (r.getDaySetting() != 0) {
+                    // Repeated on some days of week like a weekly recurrence
+                    appendByDay(rule, r);
                 }
-                rule.deleteCharAt(rule.length() - 1); // Delete extra ","
-                rule.append(';');
+                break;
+            case Recurrence.WEEKLY:
+                appendByDay(rule, r);
                 break;
             case Recurrence.MONTHLY:
                 switch (r.getDaySetting()) {
                     case Recurrence.SAME_DAY_OF_MONTH:
                         rule.append("BYMONTHDAY=");
-                        rule.append(r.startDate.get(Calendar.DAY_OF_MONTH));
+                        rule.append(start.get(Calendar.DAY_OF_MONTH));
                         break;
                     case Recurrence.SAME_DAY_OF_WEEK:
                         rule.append("BYSETPOS=");
-                        int week = r.startDate.get(Calendar.DAY_OF_WEEK_IN_MONTH);
+                        int week = start.get(Calendar.DAY_OF_WEEK_IN_MONTH);
                         if (week == 5) {
                             rule.append("-1");
                         } else {
                             rule.append(week);
                         }
                         rule.append(";BYDAY=");
-                        int dayOfWeek = r.startDate.get(Calendar.DAY_OF_WEEK);
+                        int dayOfWeek = start.get(Calendar.DAY_OF_WEEK);
                         rule.append(RRULE_BYDAY_VALUES[dayOfWeek - 1]);
                         break;
                     case Recurrence.LAST_DAY_OF_MONTH:
@@ -115,9 +121,9 @@ public class RRuleFormat {
                 break;
             case Recurrence.YEARLY:
                 rule.append("BYMONTH=");
-                rule.append(r.startDate.get(Calendar.MONTH) + 1);
+                rule.append(start.get(Calendar.MONTH) + 1);
                 rule.append(";BYMONTHDAY=");
-                rule.append(r.startDate.get(Calendar.DAY_OF_MONTH));
+                rule.append(start.get(Calendar.DAY_OF_MONTH));
                 rule.append(';');
                 break;
         }
@@ -128,7 +134,7 @@ public class RRuleFormat {
                 break;
             case Recurrence.END_BY_DATE:
                 rule.append("UNTIL=");
-                rule.append(getRRuleDate(r.endDate));
+                rule.append(getRRuleDate(r.toCalendar(r.getEndDate())));
                 rule.append(';');
                 break;
             case Recurrence.END_BY_COUNT:
@@ -143,6 +149,23 @@ public class RRuleFormat {
         return rule.toString();
     }
 
+    /**
+     * Append the BYDAY part of a rule with the days of week on which a recurrence is repeated
+     * @param rule rule being built
+     * @param r    the recurrence
+     */
+    private static void appendByDay(StringBuilder rule, Recurrence r) {
+        rule.append("BYDAY=");
+        for (int i = 0; i < 7; i++) {
+            if (r.isRepeatedOnDaysOfWeek(1 << (i + 1))) {
+                rule.append(RRULE_BYDAY_VALUES[i]);
+                rule.append(',');
+            }
+        }
+        rule.deleteCharAt(rule.length() - 1); // Delete extra ","
+        rule.append(';');
+    }
+
     /**
      * Format a date to be used in an RRule (local time)
      * Format is: YYYY-MM-DD-T-HH-MM-SS (ignore the hyphens)
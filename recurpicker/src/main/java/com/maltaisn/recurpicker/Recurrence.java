@@ -35,11 +35,22 @@ import java.text.DateFormat;
 import java.text.DateFormatSymbols;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
-
+import java.util.TimeZone;
+
+/**
+ * A recurrence rule, with a start date, a period and an optional end.
+ * <p>
+ * Query methods like {@link #findRecurrences(long, int)}, {@link #iterator(long)} or
+ * {@link #countOccurrences(long, long)} don't modify the recurrence: each call works on its own
+ * copy of the settings. A recurrence can therefore be queried by many threads at once without
+ * locking, as long as it isn't modified with its setters at the same time.
+ */
 @SuppressWarnings({"WeakerAccess", "UnusedReturnValue", "unused"})
 public class Recurrence implements Parcelable {
 
@@ -55,8 +66,10 @@ public class Recurrence implements Parcelable {
     public static final int WEEKLY = 1;
     public static final int MONTHLY = 2;
     public static final int YEARLY = 3;
+    public static final int HOURLY = 4;
+    public static final int MINUTELY = 5;
 
-    @IntDef(value = {NONE, DAILY, WEEKLY, MONTHLY, YEARLY})
+    @IntDef(value = {NONE, DAILY, WEEKLY, MONTHLY, YEARLY, HOURLY, MINUTELY})
     @Retention(RetentionPolicy.SOURCE)
     public @interface RecurrencePeriod {}
 
@@ -91,28 +104,46 @@ public class Recurrence implements Parcelable {
 
     public static final int EVERY_DAY_OF_WEEK = 0b11111110;
 
+    private static final long NO_END_DATE = Long.MIN_VALUE;
+
+    /**
+     * Receives recurrence dates one by one, without boxing them.
+     * @see #findRecurrences(long, long, DateConsumer)
+     */
+    public interface DateConsumer {
+        /**
+         * Called for each date found, in chronological order.
+         * @param date time in millis of the date.
+         */
+        void accept(long date);
+    }
+
     // If recurrence is default, it will have a simpler text format
     private boolean isDefault;
 
-    Calendar startDate;
+    private long startDate;
     private int period;  // Daily, weekly, ...
     private int frequency;  // Repeat every x periods...
-    private int daySetting;  // Extra setting, either day of week or day of month
+    private int daySetting;  // Extra setting, either days of week or day of month
 
     private int endType;
     private int endCount;
-    Calendar endDate;
+    private long endDate;  // NO_END_DATE if not ending by date
+
+    ZoneOffsets zone;  // Time zone in which dates are found, null for the default time zone
+
+    // Immutable copy of the settings, created when first needed
+    private volatile RecurrenceRule rule;
 
-    // Two calendars used for finding next recurrence
-    private @Nullable Calendar from;
-    private @Nullable Calendar current;
+    private int version;  // Incremented by each setter
 
 
     /**
      * Create a default recurrence that never ends and with frequency of 1.
      * Recurrence can then be customized with other methods.
      * @param start  date of first event.
-     * @param period any of {@code NONE}, {@code DAILY}, {@code WEEKLY}, {@code MONTHLY} or {@code YEARLY}.
+     * @param period any of {@code NONE}, {@code DAILY}, {@code WEEKLY}, {@code MONTHLY}, {@code YEARLY},
+     *               {@code HOURLY} or {@code MINUTELY}.
      *               If setting weekly period, recurrence will happen on same day of week as start date.
      *               If setting monthly period, recurrence will happen on same day of month as start date.
      * @see #setFrequency(int)
@@ -122,8 +153,22 @@ public class Recurrence implements Parcelable {
      * @see #setEndByCount(int)
      */
     public Recurrence(long start, @RecurrencePeriod int period) {
-        startDate = Calendar.getInstance();
-        startDate.setTimeInMillis(start);
+        this(start, period, null);
+    }
+
+    /**
+     * Create a default recurrence that never ends and with frequency of 1, in a time zone.
+     * @param start  date of first event.
+     * @param period any of {@code NONE}, {@code DAILY}, {@code WEEKLY}, {@code MONTHLY}, {@code YEARLY},
+     *               {@code HOURLY} or {@code MINUTELY}.
+     * @param zone   time zone in which dates are found, null to use the default time zone.
+     * @see #Recurrence(long, int)
+     * @see #setTimeZone(TimeZone)
+     */
+    public Recurrence(long start, @RecurrencePeriod int period, @Nullable TimeZone zone) {
+        this.zone = zone != null ? ZoneOffsets.of(zone) : null;
+        startDate = start;
+        endDate = NO_END_DATE;
         setPeriod(period, true);
         isDefault = true;
         frequency = 1;
@@ -137,19 +182,34 @@ public class Recurrence implements Parcelable {
     @SuppressWarnings("CopyConstructorMissesField")
     public Recurrence(@NonNull Recurrence r) {
         isDefault = r.isDefault;
-        startDate = Calendar.getInstance();
-        startDate.setTimeInMillis(r.startDate.getTimeInMillis());
+        zone = r.zone;
+        startDate = r.startDate;
         period = r.period;
         frequency = r.frequency;
         daySetting = r.daySetting;
         endType = r.endType;
-        if (r.endType == END_BY_DATE) {
-            endDate = Calendar.getInstance();
-            endDate.setTimeInMillis(r.endDate.getTimeInMillis());
-        }
+        endDate = r.endType == END_BY_DATE ? r.endDate : NO_END_DATE;
         endCount = r.endCount;
     }
 
+    /**
+     * Create a recurrence with the same settings as an immutable rule.
+     * @param rule rule to copy.
+     * @see RecurrenceRule#toRecurrence()
+     */
+    public Recurrence(@NonNull RecurrenceRule rule) {
+        isDefault = rule.isDefault();
+        zone = rule.getZoneOffsets();
+        startDate = rule.getStartDate();
+        period = rule.getPeriod();
+        frequency = rule.getFrequency();
+        daySetting = rule.getDaySetting();
+        endType = rule.getEndType();
+        endDate = endType == END_BY_DATE ? rule.getEndDate() : NO_END_DATE;
+        endCount = Math.max(0, rule.getEndCount());
+        this.rule = rule;
+    }
+
     /**
      * Change the start date of the recurrence.
      * If recurrence is default and repeating weekly, the day of week on which it is repeating will also change.
@@ -158,21 +218,23 @@ public class Recurrence implements Parcelable {
      * @return the recurrence.
      */
     public Recurrence setStartDate(long date) {
-        startDate.setTimeInMillis(date);
+        invalidate();
+        startDate = date;
+        long startDay = toDay(date);
 
         if (period == WEEKLY && isDefault) {
             // If weekly recurrence is default, recurring day of week to the same as start date
-            daySetting = 1 << startDate.get(Calendar.DAY_OF_WEEK);
+            daySetting = 1 << CivilDates.dayOfWeek(startDay);
 
-        } else if (period == MONTHLY && daySetting == LAST_DAY_OF_MONTH
-                && startDate.get(Calendar.DAY_OF_MONTH) != startDate.getActualMaximum(Calendar.DAY_OF_MONTH)) {
+        } else if (period == MONTHLY && daySetting == LAST_DAY_OF_MONTH && !isLastDayOfMonth(startDay)) {
             // Before changing it was repeating on last day, but now the start date isn't on the last
             // day of the month anymore so we change it to repeat on the same day of the month
             daySetting = SAME_DAY_OF_MONTH;
         }
 
-        if (endType == END_BY_DATE && isOnSameDayOrAfter(startDate, endDate)) {
+        if (endType == END_BY_DATE && (isSubDay() ? toDay(endDate) < startDay : startDay >= toDay(endDate))) {
             // Start and end date are on the same day now: remove recurrence
+            // Hourly and minutely recurrences can still repeat on the day they end.
             setPeriod(NONE);
         }
 
@@ -181,19 +243,23 @@ public class Recurrence implements Parcelable {
 
     /**
      * Changes the period of the recurrence.
-     * @param period either {@code NONE}, {@code DAILY}, {@code WEEKLY}, {@code MONTHLY} or {@code YEARLY}
+     * @param period either {@code NONE}, {@code DAILY}, {@code WEEKLY}, {@code MONTHLY}, {@code YEARLY},
+     *               {@code HOURLY} or {@code MINUTELY}.
      *               If setting {@code NONE}, all recurrence settings get reset to default.
      *               If setting {@code WEEKLY}, recurrence will happen on same day of week as start date.
      *               If setting {@code MONTHLY}, recurrence will happen on same day of month as start date.
+     *               If setting {@code HOURLY} or {@code MINUTELY}, recurrence will happen on every day.
      * @return the recurrence.
      */
     public Recurrence setPeriod(@RecurrencePeriod int period) {
+        invalidate();
         return setPeriod(period, false);
     }
 
     private Recurrence setPeriod(@RecurrencePeriod int period, boolean force) {
-        if (period < NONE || period > YEARLY) {
-            throw new IllegalArgumentException("Period must be one of Recurrence.NONE, DAILY, WEEKLY, MONTHLY or YEARLY");
+        if (period < NONE || period > MINUTELY) {
+            throw new IllegalArgumentException("Period must be one of Recurrence.NONE, DAILY, WEEKLY, " +
+                    "MONTHLY, YEARLY, HOURLY or MINUTELY");
         }
 
         if (!force && period == this.period) return this;
@@ -207,12 +273,12 @@ public class Recurrence implements Parcelable {
             isDefault = true;
             frequency = 1;
             endType = END_NEVER;
-            endDate = null;
+            endDate = NO_END_DATE;
             endCount = 0;
 
         } else if (period == WEEKLY) {
             // Repeat on the same day as starting day
-            daySetting = 1 << startDate.get(Calendar.DAY_OF_WEEK);
+            daySetting = 1 << CivilDates.dayOfWeek(toDay(startDate));
 
         } else if (period == MONTHLY) {
             //noinspection ConstantConditions
@@ -228,6 +294,7 @@ public class Recurrence implements Parcelable {
      * @return the recurrence.
      */
     public Recurrence setFrequency(int freq) {
+        invalidate();
         if (freq < 1) {
             throw new IllegalArgumentException("Frequency must be 1 or greater");
         }
@@ -241,14 +308,17 @@ public class Recurrence implements Parcelable {
 
 
     /**
-     * If repeating weekly, sets the days of the week on which to repeat.
+     * If repeating weekly, hourly or minutely, sets the days of the week on which to repeat.
      * @param days bit field of {@link RecurrenceDaysOfWeek} values.
+     *             If repeating weekly:
      *             If setting 0 or 1 (no days), the recurrence will become Does not repeat.
      *             If setting all days and frequency is 1, the recurrence becomes daily.
      *             So make sure to set frequency before weekly settings.
+     *             If repeating hourly or minutely, setting no days or all days repeats on every day.
      * @return the recurrence.
      */
     public Recurrence setWeeklySetting(@RecurrenceDaysOfWeek int days) {
+        invalidate();
         if (days < 0 || days > EVERY_DAY_OF_WEEK) {
             throw new IllegalArgumentException("Weekly setting isn't valid");
         }
@@ -266,6 +336,13 @@ public class Recurrence implements Parcelable {
                 daySetting = days;
             }
             isDefault = false;
+
+        } else if (isSubDay()) {
+            // Repeat on every day if no days or all days are set
+            daySetting = days <= 1 || days == EVERY_DAY_OF_WEEK ? 0 : days;
+            if (daySetting != 0) {
+                isDefault = false;
+            }
         }
         return this;
     }
@@ -278,14 +355,14 @@ public class Recurrence implements Parcelable {
      * @return the recurrence.
      */
     public Recurrence setMonthlySetting(@RecurrenceMonthlySetting int option) {
+        invalidate();
         if (option < SAME_DAY_OF_MONTH || option > LAST_DAY_OF_MONTH) {
             throw new IllegalArgumentException("Monthly setting isn't one of Recurrence." +
                     "SAME_DAY_OF_MONTH, SAME_DAY_OF_WEEK or LAST_DAY_OF_MONTH");
         }
 
         if (period == MONTHLY && option != daySetting) {
-            if (option == LAST_DAY_OF_MONTH
-                    && startDate.get(Calendar.DAY_OF_MONTH) != startDate.getActualMaximum(Calendar.DAY_OF_MONTH)) {
+            if (option == LAST_DAY_OF_MONTH && !isLastDayOfMonth(toDay(startDate))) {
                 daySetting = SAME_DAY_OF_MONTH;
             } else {
                 daySetting = option;
@@ -300,10 +377,11 @@ public class Recurrence implements Parcelable {
      * @return the recurrence.
      */
     public Recurrence setEndNever() {
+        invalidate();
         if (period == NONE) return this;
         endType = END_NEVER;
 
-        endDate = null;
+        endDate = NO_END_DATE;
         endCount = 0;
         return this;
     }
@@ -316,18 +394,20 @@ public class Recurrence implements Parcelable {
      * @return the recurrence.
      */
     public Recurrence setEndByDate(long date) {
+        invalidate();
         if (period == NONE) return this;
 
         endType = END_BY_DATE;
-        if (endDate == null) endDate = Calendar.getInstance();
-        endDate.setTimeInMillis(date);
+        endDate = date;
 
-        if (isOnSameDay(startDate, endDate)) {
+        long startDay = toDay(startDate);
+        long endDay = toDay(date);
+        if (startDay == endDay && !isSubDay()) {
             // Start and end date are on the same day now: remove recurrence
             setPeriod(NONE);
-        } else if (!isOnSameDayOrAfter(endDate, startDate)) {
+        } else if (endDay < startDay) {
             // End date is before start date
-            endDate = null;
+            endDate = NO_END_DATE;
             endType = END_NEVER;
             throw new IllegalArgumentException("End date cannot be before start date");
         }
@@ -344,6 +424,7 @@ public class Recurrence implements Parcelable {
      * @return the recurrence.
      */
     public Recurrence setEndByCount(int count) {
+        invalidate();
         if (period == NONE) return this;
         if (count < 1) {
             // Repeating for 0 events = Does not repeat
@@ -354,7 +435,7 @@ public class Recurrence implements Parcelable {
         endCount = count;
 
         isDefault = false;
-        endDate = null;
+        endDate = NO_END_DATE;
         return this;
     }
 
@@ -363,16 +444,19 @@ public class Recurrence implements Parcelable {
      * If changing to true, the recurrence must meet these criteria to change: does not repeat or
      * repeats with a frequency of 1, never ends. If repeating weekly, must only repeat on the same
      * day as the start date. If repeating monthly, must repeat on the same day of each month.
+     * If repeating hourly or minutely, must repeat on every day.
      * A default recurrence produce a simplified format, that's the only difference.
      * @param flag value to change to.
      * @return the recurrence.
      */
     public Recurrence setDefault(boolean flag) {
+        invalidate();
         if (flag != isDefault) {
             if (flag) {
                 if (period == NONE || frequency == 1 && endType == END_NEVER &&
-                        (period != WEEKLY || daySetting == 1 << startDate.get(Calendar.DAY_OF_WEEK)) &&
-                        (period != MONTHLY || daySetting == SAME_DAY_OF_MONTH)) {
+                        (period != WEEKLY || daySetting == 1 << CivilDates.dayOfWeek(toDay(startDate))) &&
+                        (period != MONTHLY || daySetting == SAME_DAY_OF_MONTH) &&
+                        (!isSubDay() || daySetting == 0)) {
                     isDefault = true;
                 }
             } else {
@@ -382,17 +466,40 @@ public class Recurrence implements Parcelable {
         return this;
     }
 
+    /**
+     * Set the time zone in which dates are found. Dates are computed on the local dates of this zone,
+     * so events keep their local time of day across its daylight saving transitions.
+     * The start and end dates keep the same time in millis, so their local date may change:
+     * settings depending on it are updated like with {@link #setStartDate(long)}.
+     * @param zone the time zone, null to use the default time zone at the time of each query.
+     * @return the recurrence.
+     */
+    public Recurrence setTimeZone(@Nullable TimeZone zone) {
+        this.zone = zone != null ? ZoneOffsets.of(zone) : null;
+        return setStartDate(startDate);
+    }
+
+    /**
+     * Gets the time zone in which dates are found.
+     * @return a copy of the time zone, null if the default time zone is used.
+     */
+    @Nullable
+    public TimeZone getTimeZone() {
+        return zone != null ? (TimeZone) zone.zone.clone() : null;
+    }
+
     /**
      * Gets the starting date of the recurrence.
      * @return time in millis of starting date.
      */
     public long getStartDate() {
-        return startDate.getTimeInMillis();
+        return startDate;
     }
 
     /**
      * Gets the period of the recurrence.
-     * @return either {@code NONE}, {@code DAILY}, {@code WEEKLY}, {@code MONTHLY} or {@code YEARLY}.
+     * @return either {@code NONE}, {@code DAILY}, {@code WEEKLY}, {@code MONTHLY}, {@code YEARLY},
+     * {@code HOURLY} or {@code MINUTELY}.
      */
 
     @RecurrencePeriod
@@ -413,7 +520,9 @@ public class Recurrence implements Parcelable {
      * @return If repeated weekly, returns a bit field of {@link RecurrenceDaysOfWeek} values.
      * You can also use {@link #isRepeatedOnDaysOfWeek(int)} to know if recurring on a specific days.
      * If repeated monthly, returns either {@code SAME_DAY_OF_MONTH}, {@code SAME_DAY_OF_WEEK}
-     * or {@code LAST_DAY_OF_MONTH}. If not repeated weekly or monthly, returns {@code 0}.
+     * or {@code LAST_DAY_OF_MONTH}. If repeated hourly or minutely, returns a bit field of
+     * {@link RecurrenceDaysOfWeek} values, or {@code 0} if repeated on every day.
+     * If not repeated weekly, monthly, hourly or minutely, returns {@code 0}.
      */
     public int getDaySetting() {
         return daySetting;
@@ -441,7 +550,14 @@ public class Recurrence implements Parcelable {
      * @return time in millis of end date, {@code -1} if forever or for a number of events.
      */
     public long getEndDate() {
-        return endDate != null ? endDate.getTimeInMillis() : -1;
+        return endDate != NO_END_DATE ? endDate : -1;
+    }
+
+    /**
+     * @return true if the recurrence has an end date.
+     */
+    boolean hasEndDate() {
+        return endDate != NO_END_DATE;
     }
 
     /**
@@ -454,20 +570,235 @@ public class Recurrence implements Parcelable {
     }
 
     /**
-     * If repeating weekly, checks if event is repeated on days of week.
+     * If repeating weekly, hourly or minutely, checks if event is repeated on days of week.
      * @param days which day, use {@link RecurrenceDaysOfWeek} values.
      *             For many days, use a bit field of those values.
      * @return true if repeated on all of these days.
      */
     public boolean isRepeatedOnDaysOfWeek(int days) {
-        return period == WEEKLY && (daySetting & days) == days;
+        return period == WEEKLY && (daySetting & days) == days
+                || isSubDay() && (daySetting == 0 || (daySetting & days) == days);
+    }
+
+    /**
+     * @return offsets of the time zone in which dates are found.
+     */
+    private ZoneOffsets resolveZone() {
+        return zone != null ? zone : ZoneOffsets.ofDefault();
+    }
+
+    /**
+     * @return local epoch day of a date in the time zone of the recurrence.
+     */
+    private long toDay(long date) {
+        return CivilDates.toEpochDay(date, resolveZone());
+    }
+
+    /**
+     * @return true if a local epoch day is the last day of its month.
+     */
+    private static boolean isLastDayOfMonth(long day) {
+        int date = CivilDates.toDate(day);
+        return CivilDates.dayOf(date) == CivilDates.lengthOfMonth(CivilDates.yearOf(date), CivilDates.monthOf(date));
+    }
+
+    /**
+     * Create a calendar for a date, in the time zone of the recurrence.
+     * Calendars are only created when needed by the formatters, the recurrence doesn't keep any.
+     * @param date time in millis of the date.
+     * @return the new calendar.
+     */
+    Calendar toCalendar(long date) {
+        Calendar cal = zone != null ? Calendar.getInstance(zone.zone) : Calendar.getInstance();
+        cal.setTimeInMillis(date);
+        return cal;
+    }
+
+    /**
+     * @return true if repeating hourly or minutely.
+     */
+    private boolean isSubDay() {
+        return period == HOURLY || period == MINUTELY;
+    }
+
+    /**
+     * Get an immutable rule with the same settings as this recurrence.
+     * The rule is kept until the recurrence is changed, so it can be used as a cache key cheaply.
+     * @return the rule.
+     * @see RecurrenceCache
+     */
+    @NonNull
+    public RecurrenceRule toRule() {
+        RecurrenceRule r = rule;
+        if (r == null) {
+            r = new RecurrenceRule(this);
+            rule = r;
+        }
+        return r;
+    }
+
+    /**
+     * Get an immutable rule with the same settings as this recurrence, using a pooled pattern.
+     * The pooled rule replaces the one kept by the recurrence, so that it doesn't keep its own pattern.
+     * @param pool pool in which the pattern is interned.
+     * @return the rule.
+     */
+    RecurrenceRule toRule(RecurrencePool pool) {
+        RecurrenceRule r = rule;
+        if (r == null) {
+            r = new RecurrenceRule(this);
+        }
+        r = pool.intern(r);
+        rule = r;
+        return r;
+    }
+
+    /**
+     * Get the version of the recurrence, to cheaply know if it was changed.
+     * The version is incremented each time a setter is called, even if the settings didn't change.
+     * Copies of a recurrence start again at version 0.
+     * @return the version.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Change the recurrence to its canonical form, so that recurrences with the same dates
+     * have equal settings even if they were created differently. The canonical form:
+     * <ul>
+     * <li>Ends by count instead of by date, unless it has more than {@link Integer#MAX_VALUE} events.</li>
+     * <li>Repeats weekly on the day of the start date instead of every multiple of 7 days,
+     * daily instead of weekly on every day, yearly instead of every multiple of 12 months
+     * on the same or last day of the month, and hourly instead of every multiple of 60 minutes.</li>
+     * <li>Is default if it meets the criteria of {@link #setDefault(boolean)}.</li>
+     * </ul>
+     * The start date, including its time, and the time zone are never changed.
+     * Note that the canonical form may be formatted differently.
+     * @return the recurrence.
+     * @see #getFingerprint()
+     */
+    public Recurrence canonicalize() {
+        invalidate();
+        if (frequency < 1) {
+            setPeriod(NONE, true);  // Can only come from an unvalidated byte array or parcel, there are no dates
+        }
+
+        if (endType == END_BY_DATE && period != NONE) {
+            ZoneOffsets zone = resolveZone();
+            long count = new RecurrenceCursor(this, startDate, 0, zone)
+                    .countUntil(CivilDates.toEpochDay(endDate, zone));
+            if (count == 0) {
+                setPeriod(NONE, true);
+            } else if (count <= Integer.MAX_VALUE) {
+                endType = END_BY_COUNT;
+                endCount = (int) count;
+                endDate = NO_END_DATE;
+            } else {
+                // Only the day of the end date matters
+                endDate = CivilDates.toMillis(CivilDates.toEpochDay(endDate, zone), 0, zone);
+            }
+        }
+
+        long startDay = toDay(startDate);
+        int start = CivilDates.toDate(startDay);
+        int startDayOfWeek = 1 << CivilDates.dayOfWeek(startDay);
+        switch (period) {
+            case DAILY:
+                daySetting = 0;
+                if (frequency % 7 == 0) {
+                    period = WEEKLY;
+                    frequency /= 7;
+                    daySetting = startDayOfWeek;
+                }
+                break;
+            case WEEKLY:
+                daySetting &= EVERY_DAY_OF_WEEK;
+                if (daySetting == 0) {
+                    setPeriod(NONE, true);
+                } else if (daySetting == EVERY_DAY_OF_WEEK && frequency == 1) {
+                    period = DAILY;
+                    daySetting = 0;
+                }
+                break;
+            case MONTHLY:
+                // Yearly events don't fall on the same days as monthly ones at the end of february
+                boolean february = CivilDates.monthOf(start) == Calendar.FEBRUARY;
+                if (frequency % 12 == 0 && (daySetting == SAME_DAY_OF_MONTH
+                        && (!february || CivilDates.dayOf(start) < 29)
+                        || daySetting == LAST_DAY_OF_MONTH && !february && isLastDayOfMonth(startDay))) {
+                    period = YEARLY;
+                    frequency /= 12;
+                    daySetting = 0;
+                }
+                break;
+            case YEARLY:
+                daySetting = 0;
+                break;
+            case HOURLY:
+            case MINUTELY:
+                daySetting &= EVERY_DAY_OF_WEEK;
+                if (daySetting == EVERY_DAY_OF_WEEK) {
+                    daySetting = 0;
+                }
+                if (period == MINUTELY && frequency % 60 == 0) {
+                    period = HOURLY;
+                    frequency /= 60;
+                }
+                break;
+        }
+
+        isDefault = false;
+        return setDefault(true);
+    }
+
+    /**
+     * Get a fingerprint of the dates of the recurrence: recurrences with the same canonical form
+     * have the same fingerprint. It is computed from the settings only, so it stays the same
+     * across processes and versions of the library and can be stored.
+     * Different recurrences can rarely have the same fingerprint, so it shouldn't replace
+     * comparing their canonical forms when that matters.
+     * @return the fingerprint.
+     * @see #canonicalize()
+     */
+    public long getFingerprint() {
+        return computeFingerprint(new Recurrence(this).canonicalize());
+    }
+
+    /**
+     * Compute the fingerprint of a recurrence in canonical form, the 64-bit FNV-1a hash of
+     * its byte array and time zone ID.
+     * @param r the canonical recurrence.
+     * @return the fingerprint.
+     */
+    static long computeFingerprint(Recurrence r) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : r.toByteArray()) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        if (r.zone != null) {
+            String id = r.zone.zone.getID();
+            for (int i = 0; i < id.length(); i++) {
+                hash = (hash ^ id.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Called by all setters before changing settings.
+     */
+    private void invalidate() {
+        rule = null;
+        version++;
     }
 
     /**
      * Get recurrences after a date.
-     * This method computes each recurrence based on a previous one until it meets given date and amount.
-     * It is useful if you want to find the 1000th recurrence and you already know the 999th, because.
-     * it prevents 999 useless iterations. Just make sure to use a correct recurrence as the base.
+     * This method computes each recurrence based on a previous one. Recurrences before the given date
+     * are skipped arithmetically instead of being computed one by one, so finding recurrences long
+     * after the base takes about the same time as finding the first ones.
+     * Just make sure to use a correct recurrence as the base.
      * @param base        recurrence on which next ones will be based.
      * @param baseRepeats how many events were already repeated when base event happened.
      *                    This is important if recurrence ends by count, otherwise set 0.
@@ -482,155 +813,608 @@ public class Recurrence implements Parcelable {
         }
 
         List<Long> list = new ArrayList<>();
+        RecurrenceIterator iterator = iteratorBasedOn(base, baseRepeats, fromDate);
+        while (list.size() < amount && iterator.hasNext()) {
+            list.add(iterator.nextLong());
+        }
+        return list;
+    }
+
+    /**
+     * Get repeat dates after a date.
+     * This method computes each repetition based on the start date until it meets given date and amount.
+     * Dates on the same day as {@code from} are included, except for hourly and minutely
+     * recurrences, for which only dates on or after that exact time are.
+     * @param from   get events after this date (time in millis).
+     * @param amount number of dates to get.
+     * @return ArrayList of dates, empty if none.
+     */
+    @NonNull
+    public List<Long> findRecurrences(long from, int amount) {
+        return findRecurrencesBasedOn(startDate, 0, from, amount);
+    }
 
-        if (from == null) {
-            from = Calendar.getInstance();
+    /**
+     * Get repeat dates after a date, reusing the dates found before the recurrence was changed.
+     * If only the end of the recurrence changed, the dates that still happen are kept and only
+     * the ones after them are computed. Otherwise, all dates are computed again.
+     * @param old    recurrence before it was changed.
+     * @param dates  dates found with {@link #findRecurrences(long, int)} of the old recurrence,
+     *               with the same {@code from} date. The list isn't modified.
+     * @param from   get events after this date (time in millis).
+     * @param amount number of dates to get.
+     * @return ArrayList of dates, same as {@link #findRecurrences(long, int)}.
+     */
+    @NonNull
+    public List<Long> updateRecurrences(@NonNull Recurrence old, @NonNull List<Long> dates, long from, int amount) {
+        if (amount < 1) {
+            throw new IllegalArgumentException("Amount must be 1 or greater");
         }
 
-        if (fromDate < 0) {
-            assert from != null;
-            from.setTimeInMillis(startDate.getTimeInMillis());  // No date specified, find all recurrences
-        } else {
-            from.setTimeInMillis(fromDate);
+        ZoneOffsets zone = resolveZone();
+        int kept = 0;
+        int firstIndex = 0;
+        if (period != NONE && old.period == period && old.frequency == frequency && old.daySetting == daySetting
+                && old.startDate == startDate
+                && Objects.equals(old.zone, this.zone) && !dates.isEmpty()) {
+            // Only the end changed: dates before the new end are the same.
+            firstIndex = indexOf(dates.get(0));
+            kept = firstIndex == -1 ? 0 : Math.min(dates.size(), amount);
+            if (endType == END_BY_COUNT) {
+                kept = (int) Math.max(0, Math.min(kept, (long) endCount - firstIndex));
+            } else if (endType == END_BY_DATE) {
+                long endDay = CivilDates.toEpochDay(endDate, zone);
+                while (kept > 0 && CivilDates.toEpochDay(dates.get(kept - 1), zone) > endDay) {
+                    kept--;
+                }
+            }
+        }
+        if (kept == 0) {
+            return findRecurrences(from, amount);
         }
 
-        // Check if repeat has already stopped as of this date, or not repeating
-        if (period == NONE || endDate != null && !isOnSameDayOrAfter(endDate, from)) {
-            return list;
+        // Compute the dates after the last one kept. The cursor is based on the start date and not
+        // on the last date since a date can differ from the start date, e.g. if moved by a DST transition.
+        List<Long> list = new ArrayList<>(dates.subList(0, kept));
+        if (kept < amount) {
+            RecurrenceCursor cursor = new RecurrenceCursor(this, startDate, 0, zone);
+            if (cursor.advance(firstIndex + kept)) {
+                while (list.size() < amount && cursor.next()) {
+                    list.add(cursor.getTime());
+                }
+            }
         }
+        return list;
+    }
 
-        if (current == null) {
-            current = Calendar.getInstance();
+    /**
+     * Get repeat dates after a date, doing no more work than allowed by a budget.
+     * If the budget is exhausted before all dates are found, the dates found so far are returned
+     * and {@link RecurrenceBudget#isExhausted()} returns true.
+     * @param from   get events after this date (time in millis), set to -1 to get after start date.
+     * @param amount number of dates to get.
+     * @param budget budget for this call.
+     * @return ArrayList of dates, empty if none.
+     */
+    @NonNull
+    public List<Long> findRecurrences(long from, int amount, @NonNull RecurrenceBudget budget) {
+        if (amount < 1) {
+            throw new IllegalArgumentException("Amount must be 1 or greater");
         }
-        current.setTimeInMillis(base);
-        int repeats = baseRepeats;
-        int amnt = 0;
-        boolean after = false;
-        switch (period) {
-            case DAILY:
-            case YEARLY:
-                while (true) {
-                    if (endCount != 0 && repeats >= endCount) {
-                        return list;
-                    }
-                    current.add((period == DAILY ? Calendar.DATE : Calendar.YEAR), frequency);
-                    if (endDate != null && !isOnSameDayOrAfter(endDate, current)) {
-                        return list;
-                    }
-                    repeats++;
-                    if (!after && isOnSameDayOrAfter(current, from)) {
-                        after = true;
-                    }
-                    if (after && amnt < amount) {
-                        list.add(current.getTimeInMillis());
-                        amnt++;
-                        if (amnt == amount) {
-                            return list;
-                        }
-                    }
-                }
 
-            case WEEKLY:
-                int skipped = 0;
-                boolean firstWeek = true;
-                while (true) {
-                    for (int day = 1; day <= 7; day++) {
-                        if (firstWeek && current.get(Calendar.DAY_OF_WEEK) >= day) {
-                            continue;  // Day is before start date on first week, wait until day after
-                        }
-                        if (endCount != 0 && repeats >= endCount) {
-                            return list;
-                        }
-                        skipped++;
-                        if (isRepeatedOnDaysOfWeek(1 << day)) {
-                            current.add(Calendar.DATE, skipped);
-                            if (endDate != null && !isOnSameDayOrAfter(endDate, current)) {
-                                return list;
-                            }
-                            skipped = 0;
-                            repeats++;
-                            if (!after && isOnSameDayOrAfter(current, from)) {
-                                after = true;
-                            }
-                            if (after && amnt < amount) {
-                                list.add(current.getTimeInMillis());
-                                amnt++;
-                                if (amnt == amount) return list;
-                            }
-                        }
-                    }
-                    if (frequency > 1) {
-                        current.add(Calendar.DATE, 7 * (frequency - 1));  // Skip weeks if needed
-                    }
-                    firstWeek = false;
+        List<Long> list = new ArrayList<>();
+        ZoneOffsets zone = resolveZone();
+        long start = startDate;
+        if (from < 0) from = start;
+        long fromDay = CivilDates.toEpochDay(from, zone);
+        RecurrenceCursor cursor = createCursor(start, 0, from, zone);
+        if (cursor != null) {
+            while (list.size() < amount && budget.step() && cursor.next()) {
+                if (cursor.getDay() >= fromDay) {
+                    list.add(cursor.getTime());
                 }
+            }
+        }
+        return list;
+    }
 
-            case MONTHLY:
-                int rday = current.get(Calendar.DAY_OF_WEEK);
-                int rmonthDay = current.get(Calendar.DAY_OF_MONTH);
-                int rweek = current.get(Calendar.DAY_OF_WEEK_IN_MONTH);
-                while (true) {
-                    if (endCount != 0 && repeats >= endCount) {
-                        return list;
-                    }
-                    current.add(Calendar.MONTH, frequency);
-                    switch (daySetting) {
-                        case LAST_DAY_OF_MONTH:
-                            // Set day of month to the last day
-                            current.set(Calendar.DAY_OF_MONTH, current.getActualMaximum(Calendar.DAY_OF_MONTH));
-                            break;
+    /**
+     * Get a page of repeat dates, continuing after a previous page.
+     * Resuming takes the same time no matter how far the page is in the recurrence.
+     * @param token  {@link RecurrencePage#FIRST_PAGE} for the first page, otherwise
+     *               the token returned with the previous page.
+     * @param amount number of dates in the page.
+     * @return the page, with the token for the next one.
+     * @throws IllegalArgumentException if the recurrence was changed since the token was created,
+     *                                  or if the token is invalid.
+     */
+    @NonNull
+    public RecurrencePage findRecurrencePage(long token, int amount) {
+        if (amount < 1) {
+            throw new IllegalArgumentException("Amount must be 1 or greater");
+        }
 
-                        case SAME_DAY_OF_MONTH:
-                            // If start date is on Jan 30 and we add a month, we get Feb 28. That's not the same day of month, skip month.
-                            if (rmonthDay > current.getActualMaximum(Calendar.DAY_OF_MONTH)) {
-                                continue;
-                            } else {
-                                current.set(Calendar.DAY_OF_MONTH, rmonthDay);
-                            }
-                            break;
+        // Token has the hash of the recurrence in the upper half and the index of next date in the lower half
+        int hash = toRule().hashCode();
+        long index = 0;
+        if (token != RecurrencePage.FIRST_PAGE) {
+            index = token & 0xFFFFFFFFL;
+            if ((int) (token >>> 32) != hash) {
+                throw new IllegalArgumentException("Recurrence was changed since page token was created");
+            } else if (index > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Page token is invalid");
+            }
+        }
 
-                        case SAME_DAY_OF_WEEK:
-                            current.set(Calendar.DAY_OF_MONTH, 15);  // Set to 15, so when we change day of week, it won't go back to last month
-
-                            if (rweek == 5) {  // Day of last week, there may not always be 5 mondays for example so consider it last
-                                current.set(Calendar.DAY_OF_WEEK, rday);
-                                current.set(Calendar.DAY_OF_WEEK_IN_MONTH, -1);
-                            } else {
-                                current.set(Calendar.DAY_OF_WEEK, rday);
-                                current.set(Calendar.DAY_OF_WEEK_IN_MONTH, rweek);
-                            }
-                            break;
-                    }
-                    if (endDate != null && !isOnSameDayOrAfter(endDate, current)) {
-                        return list;
-                    }
-                    repeats++;
-                    if (!after && isOnSameDayOrAfter(current, from)) {
-                        after = true;
-                    }
-                    if (after && amnt < amount) {
-                        list.add(current.getTimeInMillis());
-                        amnt++;
-                        if (amnt == amount) {
-                            return list;
-                        }
-                    }
+        List<Long> list = new ArrayList<>();
+        boolean isLast = true;
+        if (period != NONE) {
+            RecurrenceCursor cursor = new RecurrenceCursor(this, startDate, 0, resolveZone());
+            if (cursor.advance(index)) {
+                while (list.size() < amount && cursor.next()) {
+                    list.add(cursor.getTime());
                 }
+                isLast = list.size() < amount || !cursor.next();
+            }
         }
 
-        return list;
+        index = Math.min(index + list.size(), Integer.MAX_VALUE);
+        return new RecurrencePage(list, (long) hash << 32 | index, isLast);
     }
 
     /**
-     * Get repeat dates after a date.
-     * This method computes each repetition based on the start date until it meets given date and amount.
-     * @param from   get events after this date (time in millis).
-     * @param amount number of dates to get.
-     * @return ArrayList of dates, empty if none.
+     * Get an iterator over the recurrence dates after a date, based on a previous recurrence.
+     * Dates are only computed when asked for, so there's no need to know how many are needed beforehand.
+     * @param base        recurrence on which next ones will be based.
+     * @param baseRepeats how many events were already repeated when base event happened.
+     *                    This is important if recurrence ends by count, otherwise set 0.
+     * @param fromDate    get recurrences after this date, set to -1 if get after start date.
+     * @return the iterator, without any dates if none.
+     * @see #findRecurrencesBasedOn(long, int, long, int)
      */
     @NonNull
-    public List<Long> findRecurrences(long from, int amount) {
-        return findRecurrencesBasedOn(startDate.getTimeInMillis(), 0, from, amount);
+    public RecurrenceIterator iteratorBasedOn(long base, int baseRepeats, long fromDate) {
+        ZoneOffsets zone = resolveZone();
+        if (fromDate < 0) fromDate = startDate;
+        return new RecurrenceIterator(createCursor(base, baseRepeats, fromDate, zone),
+                CivilDates.toEpochDay(fromDate, zone));
+    }
+
+    /**
+     * Get an iterator over the recurrence dates after a date.
+     * @param from get events after this date (time in millis), set to -1 to get after start date.
+     * @return the iterator, without any dates if none.
+     * @see #findRecurrences(long, int)
+     */
+    @NonNull
+    public RecurrenceIterator iterator(long from) {
+        return iteratorBasedOn(startDate, 0, from);
+    }
+
+    /**
+     * Get an iterator over the recurrence dates before a date, in reverse chronological order.
+     * @param before get events before this date (time in millis), exclusive.
+     * @return the iterator, without any dates if none.
+     * @see #previousOccurrence(long)
+     */
+    @NonNull
+    public RecurrenceIterator descendingIterator(long before) {
+        return new RecurrenceIterator(createCursorBefore(before, resolveZone()));
+    }
+
+    /**
+     * Get the recurrence dates in a time window, without any allocation.
+     * @param from  time in millis of window start, inclusive.
+     * @param to    time in millis of window end, exclusive.
+     * @param dates array in which dates are written, from index 0.
+     *              No more dates than the array length are found.
+     * @return number of dates written to the array.
+     */
+    public int findRecurrences(long from, long to, @NonNull long[] dates) {
+        ZoneOffsets zone = resolveZone();
+        RecurrenceCursor cursor = createCursorInWindow(from, to, zone);
+        if (cursor == null || dates.length == 0) {
+            return 0;
+        }
+
+        dates[0] = cursor.getTime();
+        int count = 1 + cursor.fill(dates, 1, CivilDates.toEpochDay(to, zone));
+        while (dates[count - 1] >= to) {
+            count--;  // Event on the last day is after the window end
+        }
+        return count;
+    }
+
+    /**
+     * Get the recurrence dates in a time window, without any allocation.
+     * @param from     time in millis of window start, inclusive.
+     * @param to       time in millis of window end, exclusive.
+     * @param consumer consumer to which each date is given in order.
+     * @return number of dates given to the consumer.
+     */
+    public int findRecurrences(long from, long to, @NonNull DateConsumer consumer) {
+        RecurrenceCursor cursor = createCursorInWindow(from, to, resolveZone());
+        if (cursor == null) {
+            return 0;
+        }
+
+        int count = 0;
+        long date = cursor.getTime();
+        do {
+            consumer.accept(date);
+            count++;
+        } while (cursor.next() && (date = cursor.getTime()) < to);
+        return count;
+    }
+
+    /**
+     * Get the recurrence dates in a time window for many time zones at once.
+     * The recurrence is taken as a sequence of local dates and times, so an event at 9:00 in the
+     * time zone of the recurrence happens at 9:00 in each zone. This sequence is found only once
+     * and then converted to times in millis for each zone, which only takes a lookup of the
+     * zone offset for each date. Hourly and minutely recurrences are found again for each zone,
+     * since their local times depend on the daylight saving transitions of the zone.
+     * @param from  time in millis of window start, inclusive.
+     * @param to    time in millis of window end, exclusive.
+     * @param zones time zones in which to find dates.
+     * @return for each zone, in the same order, the dates in the window.
+     */
+    @NonNull
+    public long[][] findRecurrencesInZones(long from, long to, @NonNull TimeZone[] zones) {
+        long[][] dates = new long[zones.length][];
+        if (period == NONE || to <= from) {
+            for (int i = 0; i < zones.length; i++) {
+                dates[i] = new long[0];
+            }
+            return dates;
+        }
+
+        ZoneOffsets own = resolveZone();
+        ZoneOffsets[] offsets = new ZoneOffsets[zones.length];
+        long firstDay = Long.MAX_VALUE;
+        long lastDay = Long.MIN_VALUE;
+        for (int i = 0; i < zones.length; i++) {
+            offsets[i] = ZoneOffsets.of(zones[i]);
+            firstDay = Math.min(firstDay, CivilDates.toEpochDay(from, offsets[i]));
+            lastDay = Math.max(lastDay, CivilDates.toEpochDay(to - 1, offsets[i]));
+        }
+
+        if (isSubDay()) {
+            for (int i = 0; i < zones.length; i++) {
+                Recurrence r = inZone(offsets[i], own);
+                dates[i] = new long[(int) Math.min(r.countOccurrences(from, to), Integer.MAX_VALUE - 8)];
+                r.findRecurrences(from, to, dates[i]);
+            }
+            return dates;
+        }
+
+        // Find the local days of the events in the window of any zone
+        long[] days = new long[16];
+        int count = 0;
+        long start = startDate;
+        RecurrenceCursor cursor = zones.length > 0 ? createCursor(start, 0, CivilDates.toMillis(firstDay, 0, own), own) : null;
+        while (cursor != null && cursor.next() && cursor.getDay() <= lastDay) {
+            if (count == days.length) {
+                days = Arrays.copyOf(days, count * 2);
+            }
+            days[count++] = cursor.getDay();
+        }
+
+        // Convert the local days to dates in each zone
+        int timeOfDay = CivilDates.toTimeOfDay(start, own);
+        long[] zoneDates = new long[count];
+        for (int i = 0; i < zones.length; i++) {
+            ZoneOffsets zone = offsets[i];
+            int n = 0;
+            for (int j = 0; j < count; j++) {
+                long date = CivilDates.toMillis(days[j], timeOfDay, zone);
+                if (date >= to) break;
+                if (date >= from) zoneDates[n++] = date;
+            }
+            dates[i] = Arrays.copyOf(zoneDates, n);
+        }
+        return dates;
+    }
+
+    /**
+     * Get a copy of this recurrence in another time zone, with the start and end dates
+     * at the same local date and time as in the time zone of this recurrence.
+     * @param zone the other time zone.
+     * @param own  the time zone of this recurrence.
+     * @return the copy.
+     */
+    private Recurrence inZone(ZoneOffsets zone, ZoneOffsets own) {
+        Recurrence r = new Recurrence(this);
+        r.zone = zone;
+        r.startDate = toZone(startDate, own, zone);
+        if (r.endDate != NO_END_DATE) {
+            r.endDate = toZone(endDate, own, zone);
+        }
+        return r;
+    }
+
+    /**
+     * @return time in millis of the same local date and time as a date of another time zone.
+     */
+    private static long toZone(long date, ZoneOffsets from, ZoneOffsets to) {
+        return CivilDates.toMillis(CivilDates.toEpochDay(date, from), CivilDates.toTimeOfDay(date, from), to);
+    }
+
+    /**
+     * Count the recurrence dates in a time window.
+     * Dates are counted arithmetically, without finding each of them, so the time taken
+     * doesn't depend on the size of the window. The start date isn't counted, like with
+     * {@link #findRecurrences(long, int)}.
+     * @param from time in millis of window start, inclusive.
+     * @param to   time in millis of window end, exclusive.
+     * @return number of dates in the window.
+     */
+    public long countOccurrences(long from, long to) {
+        if (period == NONE || to <= from) {
+            return 0;
+        }
+
+        ZoneOffsets zone = resolveZone();
+        long start = startDate;
+        return new RecurrenceCursor(this, start, 0, zone).countBefore(to)
+                - new RecurrenceCursor(this, start, 0, zone).countBefore(from);
+    }
+
+    /**
+     * Count the recurrence dates in many consecutive time windows, in a single pass over the recurrence.
+     * @param bounds sorted times in millis of the window bounds, window {@code i} being from
+     *               {@code bounds[i]} inclusive to {@code bounds[i + 1]} exclusive.
+     * @param counts array in which the number of dates in each window is written,
+     *               must have a length of at least {@code bounds.length - 1}.
+     */
+    public void countOccurrences(@NonNull long[] bounds, @NonNull long[] counts) {
+        if (counts.length < bounds.length - 1) {
+            throw new IllegalArgumentException("Counts array is too small");
+        }
+        if (bounds.length < 2) {
+            return;
+        }
+
+        ZoneOffsets zone = resolveZone();
+        RecurrenceCursor cursor = createCursor(startDate, 0, bounds[0], zone);
+        long time = nextTime(cursor);
+        while (time < bounds[0]) {
+            time = nextTime(cursor);
+        }
+        for (int i = 0; i < bounds.length - 1; i++) {
+            if (bounds[i + 1] < bounds[i]) {
+                throw new IllegalArgumentException("Window bounds must be sorted");
+            }
+            long count = 0;
+            while (time < bounds[i + 1]) {
+                count++;
+                time = nextTime(cursor);
+            }
+            counts[i] = count;
+        }
+    }
+
+    /**
+     * Get the first recurrence date on or after many dates, in a single pass over the recurrence.
+     * Each result is the same as the first date returned by {@link #findRecurrences(long, int)}.
+     * @param from  sorted times in millis of the dates.
+     * @param dates array in which the recurrence date for each date is written, {@code -1} if none.
+     *              Must have a length of at least {@code from.length}.
+     */
+    public void findNextRecurrences(@NonNull long[] from, @NonNull long[] dates) {
+        if (dates.length < from.length) {
+            throw new IllegalArgumentException("Dates array is too small");
+        }
+        if (from.length == 0) {
+            return;
+        }
+
+        ZoneOffsets zone = resolveZone();
+        RecurrenceCursor cursor = createCursor(startDate, 0, from[0], zone);
+        // Dates are compared by day, or by time if repeating hourly or minutely.
+        // Position of current event, Long.MAX_VALUE if there are no more events
+        boolean subDay = isSubDay();
+        long pos = cursor != null ? Long.MIN_VALUE : Long.MAX_VALUE;
+        for (int i = 0; i < from.length; i++) {
+            if (i > 0 && from[i] < from[i - 1]) {
+                throw new IllegalArgumentException("Dates must be sorted");
+            }
+            long fromPos = subDay ? from[i] : CivilDates.toEpochDay(from[i], zone);
+            if (pos < fromPos) {
+                // Skip to the first event on or after this date
+                assert cursor != null;
+                cursor.skipToTime(from[i]);
+                do {
+                    pos = !cursor.next() ? Long.MAX_VALUE : subDay ? cursor.getTime() : cursor.getDay();
+                } while (pos < fromPos);
+            }
+            dates[i] = pos != Long.MAX_VALUE ? cursor.getTime() : -1;
+        }
+    }
+
+    /**
+     * Move a cursor to its next event.
+     * @param cursor the cursor, may be null if there are no events.
+     * @return time in millis of next event, {@link Long#MAX_VALUE} if there are none.
+     */
+    private static long nextTime(@Nullable RecurrenceCursor cursor) {
+        return cursor != null && cursor.next() ? cursor.getTime() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Get the recurrence date at an index, without finding the dates before it.
+     * @param index index of the date, {@code 0} being the first date after the start date,
+     *              like the list returned by {@link #findRecurrences(long, int)} with no date.
+     * @return time in millis of the date, {@code -1} if recurrence ends before.
+     */
+    public long occurrenceAt(int index) {
+        if (period == NONE || index < 0) {
+            return -1;
+        }
+
+        RecurrenceCursor cursor = new RecurrenceCursor(this, startDate, 0, resolveZone());
+        return cursor.advance(index + 1) ? cursor.getTime() : -1;
+    }
+
+    /**
+     * Get the index of the recurrence date on the same day as a date.
+     * If repeating hourly or minutely, the date must be exactly a recurrence date instead.
+     * @param date time in millis of the date.
+     * @return the index, {@code 0} being the first date after the start date,
+     * or {@code -1} if recurrence doesn't happen on this day.
+     * @see #occurrenceAt(int)
+     */
+    public int indexOf(long date) {
+        if (period == NONE) {
+            return -1;
+        }
+
+        ZoneOffsets zone = resolveZone();
+        long start = startDate;
+        long day = CivilDates.toEpochDay(date, zone);
+        long index;
+        if (isSubDay()) {
+            index = new RecurrenceCursor(this, start, 0, zone).countBefore(date);
+        } else {
+            index = new RecurrenceCursor(this, start, 0, zone).countUntil(day - 1);
+        }
+        if (index >= Integer.MAX_VALUE) {
+            return -1;
+        }
+
+        RecurrenceCursor cursor = new RecurrenceCursor(this, start, 0, zone);
+        if (!cursor.advance(index + 1)) {
+            return -1;
+        }
+        return (isSubDay() ? cursor.getTime() == date : cursor.getDay() == day) ? (int) index : -1;
+    }
+
+    /**
+     * Check if the recurrence has at least one date after the start date, without finding dates.
+     * Recurrences created from a byte array or a parcel aren't checked like with the setters, so
+     * their settings may not allow any date, e.g. repeating weekly on no days of the week.
+     * Finding dates of such a recurrence never takes long, but returns no dates.
+     * @return true if there's at least one date.
+     */
+    public boolean hasOccurrences() {
+        return occurrenceAt(0) != -1;
+    }
+
+    /**
+     * Check if the recurrence happens on the same day as a date, without finding the dates before it.
+     * Like with {@link #findRecurrences(long, int)}, the start date isn't considered a recurrence.
+     * @param date time in millis of the date.
+     * @return true if there's a recurrence on this day.
+     */
+    public boolean occursOn(long date) {
+        if (period == NONE) {
+            return false;
+        }
+
+        ZoneOffsets zone = resolveZone();
+        return new RecurrenceCursor(this, startDate, 0, zone)
+                .occursOn(CivilDates.toEpochDay(date, zone));
+    }
+
+    /**
+     * Get the last date of the recurrence.
+     * @return time in millis of the last date, {@code -1} if recurrence never ends or has no dates.
+     */
+    public long getLastOccurrence() {
+        if (period == NONE || endDate == NO_END_DATE && endCount == 0) {
+            return -1;
+        }
+
+        ZoneOffsets zone = resolveZone();
+        long start = startDate;
+        long count = endCount;
+        if (endDate != NO_END_DATE) {
+            count = new RecurrenceCursor(this, start, 0, zone)
+                    .countUntil(CivilDates.toEpochDay(endDate, zone));
+        }
+        if (count == 0) {
+            return -1;
+        }
+
+        RecurrenceCursor cursor = new RecurrenceCursor(this, start, 0, zone);
+        return cursor.advance(count) ? cursor.getTime() : -1;
+    }
+
+    /**
+     * Get the last recurrence date before a date.
+     * @param before time in millis of the date, exclusive.
+     * @return time in millis of the previous date, {@code -1} if there are none.
+     */
+    public long previousOccurrence(long before) {
+        RecurrenceCursor cursor = createCursorBefore(before, resolveZone());
+        return cursor != null ? cursor.getTime() : -1;
+    }
+
+    /**
+     * Create a cursor to find recurrences on or after a day.
+     * @param base        recurrence on which next ones will be based.
+     * @param baseRepeats how many events were already repeated when base event happened.
+     * @param from        time in millis from which to find recurrences. Recurrences are found
+     *                    from its day, or from that exact time if repeating hourly or minutely.
+     * @param zone        time zone in which the recurrence is evaluated.
+     * @return the cursor, or null if there are no recurrences on or after this date.
+     */
+    @Nullable
+    private RecurrenceCursor createCursor(long base, int baseRepeats, long from, ZoneOffsets zone) {
+        // Check if repeat has already stopped as of this date, or not repeating
+        if (period == NONE || endDate != NO_END_DATE && CivilDates.toEpochDay(endDate, zone)
+                < CivilDates.toEpochDay(from, zone)) {
+            return null;
+        }
+
+        RecurrenceCursor cursor = new RecurrenceCursor(this, base, baseRepeats, zone);
+        cursor.skipToTime(from);
+        return cursor;
+    }
+
+    /**
+     * Create a cursor positioned on the first recurrence in a time window.
+     * @param from time in millis of window start, inclusive.
+     * @param to   time in millis of window end, exclusive.
+     * @param zone time zone in which the recurrence is evaluated.
+     * @return the cursor, or null if there are no recurrences in the window.
+     */
+    @Nullable
+    private RecurrenceCursor createCursorInWindow(long from, long to, ZoneOffsets zone) {
+        RecurrenceCursor cursor = createCursor(startDate, 0, from, zone);
+        if (cursor == null) {
+            return null;
+        }
+
+        // Skip events on the first day that are before the window start
+        long date;
+        do {
+            if (!cursor.next()) return null;
+            date = cursor.getTime();
+        } while (date < from);
+        return date < to ? cursor : null;
+    }
+
+    /**
+     * Create a cursor positioned on the last recurrence before a date.
+     * @param before time in millis of the date, exclusive.
+     * @param zone   time zone in which the recurrence is evaluated.
+     * @return the cursor, or null if there are no recurrences before this date.
+     */
+    @Nullable
+    private RecurrenceCursor createCursorBefore(long before, ZoneOffsets zone) {
+        if (period == NONE) {
+            return null;
+        }
+
+        long start = startDate;
+        long count = new RecurrenceCursor(this, start, 0, zone).countBefore(before);
+        if (count == 0) {
+            return null;
+        }
+
+        RecurrenceCursor cursor = new RecurrenceCursor(this, start, 0, zone);
+        return cursor.advance(count) ? cursor : null;
     }
 
 
@@ -655,18 +1439,14 @@ public class Recurrence implements Parcelable {
         }
 
         isDefault = bb.get() == 1;
-        startDate = Calendar.getInstance();
-        startDate.setTimeInMillis(bb.getLong());
+        startDate = bb.getLong();
         period = bb.getInt();
         frequency = bb.getInt();
         daySetting = bb.getInt();
         endType = bb.getInt();
         endCount = bb.getInt();
         long end = bb.getLong();
-        if (end != 0) {
-            endDate = Calendar.getInstance();
-            endDate.setTimeInMillis(end);
-        }
+        endDate = end != 0 ? end : NO_END_DATE;
     }
 
     /**
@@ -677,13 +1457,13 @@ public class Recurrence implements Parcelable {
         ByteBuffer bb = ByteBuffer.allocate(BYTE_ARRAY_LENGTH);
         bb.putInt(VERSION);
         bb.put(isDefault ? (byte) 1 : 0);
-        bb.putLong(startDate.getTimeInMillis());
+        bb.putLong(startDate);
         bb.putInt(period);
         bb.putInt(frequency);
         bb.putInt(daySetting);
         bb.putInt(endType);
         bb.putInt(endCount);
-        bb.putLong(endDate == null ? 0 : endDate.getTimeInMillis());
+        bb.putLong(endDate == NO_END_DATE ? 0 : endDate);
 
         return bb.array();
     }
@@ -705,14 +1485,15 @@ public class Recurrence implements Parcelable {
                 r.daySetting == daySetting &&
                 r.endType == endType &&
                 (endCount == 0 || r.endCount == endCount) &&
-                (ignoreStartDate || isOnSameDay(r.startDate, startDate)) &&
-                (endDate == null || isOnSameDay(r.endDate, endDate));
+                (ignoreStartDate || r.toDay(r.startDate) == toDay(startDate)) &&
+                (endDate == NO_END_DATE || r.endDate != NO_END_DATE && r.toDay(r.endDate) == toDay(endDate)) &&
+                Objects.equals(r.zone, zone);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(isDefault, period, frequency, daySetting, endType, getDaysInCalendar(startDate),
-                (endDate != null ? getDaysInCalendar(endDate) : 0), endCount);
+        return Objects.hash(isDefault, period, frequency, daySetting, endType, toDay(startDate),
+                (endDate != NO_END_DATE ? toDay(endDate) : 0), endCount, zone);
     }
 
     @NonNull
@@ -720,10 +1501,11 @@ public class Recurrence implements Parcelable {
     public String toString() {
         DateFormatSymbols dfs = DateFormatSymbols.getInstance(Locale.ENGLISH);
         DateFormat df = new SimpleDateFormat("MMM dd, yyyy", Locale.ENGLISH);
+        if (zone != null) df.setTimeZone(zone.zone);
         StringBuilder recurSb = new StringBuilder();
         recurSb.append('[');
         recurSb.append("From ");
-        recurSb.append(df.format(startDate.getTime()));
+        recurSb.append(df.format(new Date(startDate)));
         recurSb.append(", ");
         switch (period) {
             case NONE:
@@ -768,11 +1550,12 @@ public class Recurrence implements Parcelable {
                             break;
 
                         case SAME_DAY_OF_WEEK:
+                            Calendar start = toCalendar(startDate);
                             recurSb.append("on every ");
                             recurSb.append(new String[]{"first", "second", "third", "fourth", "last"}
-                                    [startDate.get(Calendar.DAY_OF_WEEK_IN_MONTH) - 1]);
+                                    [start.get(Calendar.DAY_OF_WEEK_IN_MONTH) - 1]);
                             recurSb.append(' ');
-                            recurSb.append(dfs.getWeekdays()[startDate.get(Calendar.DAY_OF_WEEK)]);
+                            recurSb.append(dfs.getWeekdays()[start.get(Calendar.DAY_OF_WEEK)]);
                             break;
 
                         case LAST_DAY_OF_MONTH:
@@ -787,13 +1570,31 @@ public class Recurrence implements Parcelable {
                 recurSb.append("on every ");
                 recurSb.append(toStringPlural("year", frequency, false));
                 break;
+
+            case HOURLY:
+            case MINUTELY:
+                recurSb.append("on every ");
+                recurSb.append(toStringPlural(period == HOURLY ? "hour" : "minute", frequency, false));
+                if (daySetting != 0) {
+                    // on [Sun, Mon, Wed, ...]
+                    recurSb.append(" on ");
+                    String[] daysAbbr = dfs.getShortWeekdays();
+                    for (int day = Calendar.SUNDAY; day <= Calendar.SATURDAY; day++) {
+                        if (isRepeatedOnDaysOfWeek(1 << day)) {
+                            recurSb.append(daysAbbr[day]);
+                            recurSb.append(", ");
+                        }
+                    }
+                    recurSb.delete(recurSb.length() - 2, recurSb.length());  // Remove extra separator
+                }
+                break;
         }
 
         if (endType != END_NEVER) {
             recurSb.append("; ");
             if (endType == END_BY_DATE) {
                 recurSb.append("until ");
-                recurSb.append(df.format(endDate.getTime()));
+                recurSb.append(df.format(new Date(endDate)));
             } else {
                 recurSb.append("for ");
                 recurSb.append(toStringPlural("event", endCount, true));
@@ -824,8 +1625,13 @@ public class Recurrence implements Parcelable {
                 c1.get(Calendar.DAY_OF_YEAR) == c2.get(Calendar.DAY_OF_YEAR);
     }
 
-    private static int getDaysInCalendar(@NonNull Calendar cal) {
-        return cal.get(Calendar.YEAR) * 365 + cal.get(Calendar.DAY_OF_YEAR);
+    /**
+     * Checks if a calendar's date is on the last day of its month.
+     * @param cal calendar to check
+     * @return true if on the last day of month
+     */
+    static boolean isOnLastDayOfMonth(@NonNull Calendar cal) {
+        return cal.get(Calendar.DAY_OF_MONTH) == CivilDates.lengthOfMonth(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH));
     }
 
     /**
@@ -848,14 +1654,15 @@ public class Recurrence implements Parcelable {
 
     public void writeToParcel(Parcel out, int flags) {
         out.writeInt(isDefault ? 1 : 0);
-        out.writeLong(startDate == null ? 0 : startDate.getTimeInMillis());
+        out.writeLong(startDate);
         out.writeInt(period);
         out.writeInt(frequency);
         out.writeInt(daySetting);
 
         out.writeInt(endType);
         out.writeInt(endCount);
-        out.writeLong(endDate == null ? 0 : endDate.getTimeInMillis());
+        out.writeLong(endDate == NO_END_DATE ? 0 : endDate);
+        out.writeString(zone == null ? null : zone.zone.getID());
     }
 
     public static final Parcelable.Creator<Recurrence> CREATOR = new Parcelable.Creator<Recurrence>() {
@@ -870,13 +1677,7 @@ public class Recurrence implements Parcelable {
 
     private Recurrence(Parcel in) {
         isDefault = in.readInt() == 1;
-        long start = in.readLong();
-        if (start == 0) {
-            startDate = null;
-        } else {
-            startDate = Calendar.getInstance();
-            startDate.setTimeInMillis(start);
-        }
+        startDate = in.readLong();
         period = in.readInt();
         frequency = in.readInt();
         daySetting = in.readInt();
@@ -884,11 +1685,11 @@ public class Recurrence implements Parcelable {
         endType = in.readInt();
         endCount = in.readInt();
         long end = in.readLong();
-        if (end == 0) {
-            endDate = null;
-        } else {
-            endDate = Calendar.getInstance();
-            endDate.setTimeInMillis(end);
+        endDate = end != 0 ? end : NO_END_DATE;
+
+        String zoneId = in.readString();
+        if (zoneId != null) {
+            zone = ZoneOffsets.of(TimeZone.getTimeZone(zoneId));
         }
     }
 }
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Finds the dates of many recurrences in the same time window using many threads.
+ * The number of dates of each recurrence is counted first, then the recurrences are split
+ * in chunks of about the same number of dates, which workers take one after the other.
+ * Each worker writes dates to its own buffer, so no list or boxed date is created.
+ * <p>
+ * Workers are run by the executor given to the batch, for example a fixed thread pool,
+ * and the thread calling {@link #expand(Collection, long, long, Sink)} also works until all
+ * chunks are done. The recurrences must not be changed during the expansion.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class RecurrenceBatch {
+
+    private static final int CHUNKS_PER_WORKER = 4;  // So that faster workers can take more chunks
+    private static final int RECURRENCE_COST = 8;  // Cost of a recurrence in dates, for creating its cursor
+
+    private static final int MAX_DATES = Integer.MAX_VALUE - 8;  // Maximum size of an array
+
+    private static final long[] EMPTY_BUFFER = new long[0];
+
+    private final Executor executor;
+    private final int parallelism;
+
+    /**
+     * Receives the dates found by a batch. It is called by many threads at once.
+     */
+    public interface Sink {
+
+        /**
+         * Called with the dates of a recurrence in the time window.
+         * Not called for recurrences without dates in the window.
+         * @param index index of the recurrence in the iteration order of the collection.
+         * @param r     the recurrence.
+         * @param dates buffer with the dates in order, from index 0. It is reused by the worker
+         *              once this method returns, so dates must be copied to be kept.
+         * @param count number of dates in the buffer.
+         */
+        void accept(int index, @NonNull Recurrence r, @NonNull long[] dates, int count);
+
+    }
+
+    /**
+     * Create a batch using as many workers as there are available processors.
+     * @param executor executor running the workers.
+     */
+    public RecurrenceBatch(@NonNull Executor executor) {
+        this(executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a batch.
+     * @param executor    executor running the workers.
+     * @param parallelism maximum number of workers, including the calling thread.
+     */
+    public RecurrenceBatch(@NonNull Executor executor, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be 1 or greater");
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Find the dates of recurrences in a time window and give them to a sink.
+     * Returns once all dates were given to the sink.
+     * @param recurrences recurrences to expand.
+     * @param from        time in millis of window start, inclusive.
+     * @param to          time in millis of window end, exclusive.
+     * @param sink        sink to which the dates of each recurrence are given, from worker threads.
+     * @return total number of dates found.
+     * @throws IllegalArgumentException if a recurrence has more than {@code Integer.MAX_VALUE - 8}
+     *                                  dates in the window, more than an array can hold.
+     *                                  Nothing is given to the sink in that case.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for
+     *                              the workers, which then stop after their current chunk.
+     */
+    public long expand(@NonNull Collection<Recurrence> recurrences, final long from, final long to,
+                       @NonNull final Sink sink) throws InterruptedException {
+        final Recurrence[] rs = recurrences.toArray(new Recurrence[recurrences.size()]);
+        if (rs.length == 0 || to <= from) {
+            return 0;
+        }
+
+        // Count the dates of each recurrence, in chunks of the same number of recurrences
+        final long[] counts = new long[rs.length];
+        int chunks = Math.min(rs.length, parallelism * CHUNKS_PER_WORKER);
+        int[] bounds = new int[chunks + 1];
+        for (int i = 0; i <= chunks; i++) {
+            bounds[i] = (int) ((long) rs.length * i / chunks);
+        }
+        run(new Job(bounds) {
+            @Override
+            long[] process(int start, int end, long[] buffer) {
+                for (int i = start; i < end; i++) {
+                    counts[i] = rs[i].countOccurrences(from, to);
+                    if (counts[i] > MAX_DATES) {
+                        throw new IllegalArgumentException("Time window has too many dates");
+                    }
+                }
+                return buffer;
+            }
+        });
+
+        // Find the dates, in chunks of about the same number of dates
+        final AtomicLong total = new AtomicLong();
+        run(new Job(splitByCost(counts, parallelism * CHUNKS_PER_WORKER)) {
+            @Override
+            long[] process(int start, int end, long[] buffer) {
+                long found = 0;
+                for (int i = start; i < end; i++) {
+                    int count = (int) counts[i];
+                    if (count == 0) continue;
+                    if (buffer.length < count) {
+                        buffer = new long[(int) Math.max(count, Math.min(2L * buffer.length, MAX_DATES))];
+                    }
+                    count = rs[i].findRecurrences(from, to, buffer);
+                    sink.accept(i, rs[i], buffer, count);
+                    found += count;
+                }
+                total.addAndGet(found);
+                return buffer;
+            }
+        });
+        return total.get();
+    }
+
+    /**
+     * Split recurrences in consecutive chunks of about the same cost.
+     * @param counts      number of dates of each recurrence.
+     * @param chunksAimed number of chunks to split in, a few more or less may be created.
+     * @return bounds of the chunks, chunk {@code i} being from {@code bounds[i]} inclusive
+     * to {@code bounds[i + 1]} exclusive.
+     */
+    static int[] splitByCost(long[] counts, int chunksAimed) {
+        long totalCost = 0;
+        for (long count : counts) {
+            totalCost += count + RECURRENCE_COST;
+        }
+        long chunkCost = totalCost / chunksAimed + 1;
+
+        int[] bounds = new int[counts.length + 1];
+        int chunks = 0;
+        long cost = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cost += counts[i] + RECURRENCE_COST;
+            if (cost >= chunkCost) {
+                bounds[++chunks] = i + 1;
+                cost = 0;
+            }
+        }
+        if (bounds[chunks] != counts.length) {
+            bounds[++chunks] = counts.length;
+        }
+        return Arrays.copyOf(bounds, chunks + 1);
+    }
+
+    /**
+     * Run a job on the executor and the calling thread, and wait until all its chunks are done.
+     */
+    private void run(Job job) throws InterruptedException {
+        int workers = Math.min(parallelism, job.bounds.length - 1);
+        for (int i = 1; i < workers; i++) {
+            try {
+                executor.execute(job);
+            } catch (RejectedExecutionException e) {
+                break;  // Fewer workers, the calling thread will do the rest
+            }
+        }
+        job.run();
+
+        try {
+            job.done.await();
+        } catch (InterruptedException e) {
+            job.failure.compareAndSet(null, e);
+            throw e;
+        }
+
+        Throwable failure = job.failure.get();
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+    /**
+     * Work split in chunks of recurrences, run by each worker until no chunk is left.
+     * Chunks are still counted as done after a failure, but aren't processed anymore.
+     */
+    private abstract static class Job implements Runnable {
+
+        final int[] bounds;
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final CountDownLatch done;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Job(int[] bounds) {
+            this.bounds = bounds;
+            done = new CountDownLatch(bounds.length - 1);
+        }
+
+        @Override
+        public void run() {
+            long[] buffer = EMPTY_BUFFER;
+            int chunk;
+            while ((chunk = nextChunk.getAndIncrement()) < bounds.length - 1) {
+                try {
+                    if (failure.get() == null) {
+                        buffer = process(bounds[chunk], bounds[chunk + 1], buffer);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        }
+
+        /**
+         * Process the recurrences of a chunk.
+         * @param start  index of the first recurrence, inclusive.
+         * @param end    index of the last recurrence, exclusive.
+         * @param buffer buffer of the worker.
+         * @return the buffer of the worker, a new one if it had to be grown.
+         */
+        abstract long[] process(int start, int end, long[] buffer);
+
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+/**
+ * Limit on the work done to find recurrence dates, used with
+ * {@link Recurrence#findRecurrences(long, int, RecurrenceBudget)}.
+ * When the budget is exhausted, the dates found so far are returned and {@link #isExhausted()} returns true.
+ * A budget is meant to be used for a single call and shouldn't be shared between threads.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class RecurrenceBudget {
+
+    private static final int TIME_CHECK_INTERVAL = 64;  // Number of steps between checks of the time
+
+    private final long maxSteps;
+    private final long deadline;
+
+    private long steps;
+    private boolean exhausted;
+
+    /**
+     * Create a budget.
+     * @param maxSteps  maximum number of recurrence dates computed, including those before the
+     *                  dates asked for, or {@link Long#MAX_VALUE} for no limit.
+     * @param maxMillis maximum time taken in milliseconds from the creation of the budget,
+     *                  or {@link Long#MAX_VALUE} for no limit.
+     */
+    public RecurrenceBudget(long maxSteps, long maxMillis) {
+        if (maxSteps < 1 || maxMillis < 1) {
+            throw new IllegalArgumentException("Budget must be 1 or greater");
+        }
+        this.maxSteps = maxSteps;
+        deadline = maxMillis > Long.MAX_VALUE / 1000000 ? Long.MAX_VALUE : System.nanoTime() + maxMillis * 1000000;
+    }
+
+    /**
+     * Use one step of the budget.
+     * @return false if the budget is exhausted and nothing more should be computed.
+     */
+    boolean step() {
+        if (exhausted) return false;
+        steps++;
+        if (steps > maxSteps || deadline != Long.MAX_VALUE && steps % TIME_CHECK_INTERVAL == 0
+                && System.nanoTime() - deadline > 0) {
+            exhausted = true;
+        }
+        return !exhausted;
+    }
+
+    /**
+     * @return true if the budget was exhausted and the results are incomplete.
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * @return number of steps used.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import android.support.annotation.NonNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of the recurrence dates found in time windows.
+ * Entries are keyed by the canonical {@link RecurrenceRule} of a recurrence and the window, so
+ * recurrences with the same dates share entries even if their settings differ, and changing
+ * a recurrence with its setters makes its previous entries unreachable: cached dates are never stale.
+ * Those entries are then evicted like any other when the cache is full.
+ * <p>
+ * The cache is bounded by the total number of dates it holds, each entry counting as at least
+ * one date so that windows without dates are evicted too. It can be used by many threads
+ * at once. Dates of recurrences without a time zone are computed in the default time zone,
+ * so the cache should be cleared if it changes.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class RecurrenceCache {
+
+    private static final long[] NO_DATES = new long[0];
+
+    private final int maxDates;
+    private final LinkedHashMap<Key, long[]> entries;
+
+    private int dateCount;
+    private int size;  // Like dateCount, but with entries without dates counting as one
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Create a cache.
+     * @param maxDates maximum number of dates held in the cache, for all entries.
+     *                 Windows with more dates than this are never cached.
+     */
+    public RecurrenceCache(int maxDates) {
+        if (maxDates < 1) {
+            throw new IllegalArgumentException("Maximum number of dates must be 1 or greater");
+        }
+        this.maxDates = maxDates;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Get the recurrence dates in a time window, from the cache if they were already found.
+     * @param r    the recurrence.
+     * @param from time in millis of window start, inclusive.
+     * @param to   time in millis of window end, exclusive.
+     * @return a new array of the dates in the window, like {@link Recurrence#findRecurrences(long, long, long[])}.
+     */
+    @NonNull
+    public long[] findRecurrences(@NonNull Recurrence r, long from, long to) {
+        return findRecurrences(r.toRule(), from, to);
+    }
+
+    /**
+     * Get the recurrence dates in a time window, from the cache if they were already found.
+     * @param rule the recurrence rule.
+     * @param from time in millis of window start, inclusive.
+     * @param to   time in millis of window end, exclusive.
+     * @return a new array of the dates in the window, like {@link Recurrence#findRecurrences(long, long, long[])}.
+     */
+    @NonNull
+    public long[] findRecurrences(@NonNull RecurrenceRule rule, long from, long to) {
+        if (to <= from) {
+            return NO_DATES;
+        }
+
+        rule = rule.canonicalize();
+        Key key = new Key(rule, from, to);
+        long[] dates;
+        synchronized (this) {
+            dates = entries.get(key);
+            if (dates != null) {
+                hitCount++;
+                return dates.clone();
+            }
+            missCount++;
+        }
+
+        // Find dates without holding the lock, another thread may do the same in the meantime
+        Recurrence r = rule.toRecurrence();
+        long count = r.countOccurrences(from, to);
+        if (count > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Time window has too many dates");
+        }
+        dates = new long[(int) count];
+        r.findRecurrences(from, to, dates);
+
+        if (dates.length <= maxDates) {
+            synchronized (this) {
+                long[] old = entries.put(key, dates);
+                if (old != null) {
+                    dateCount -= old.length;
+                    size -= sizeOf(old);
+                }
+                dateCount += dates.length;
+                size += sizeOf(dates);
+                trim();
+            }
+        }
+        return dates.clone();
+    }
+
+    /**
+     * Evict least recently used entries until the cache holds no more than the maximum number of dates.
+     */
+    private void trim() {
+        Iterator<Map.Entry<Key, long[]>> it = entries.entrySet().iterator();
+        while (size > maxDates && it.hasNext()) {
+            long[] dates = it.next().getValue();
+            dateCount -= dates.length;
+            size -= sizeOf(dates);
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Remove all entries from the cache. Counters are not reset.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        dateCount = 0;
+        size = 0;
+    }
+
+    /**
+     * @return size of an entry with dates, counted in the maximum number of dates.
+     */
+    private static int sizeOf(long[] dates) {
+        return Math.max(1, dates.length);
+    }
+
+    /**
+     * @return number of entries in the cache.
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return total number of dates held in the cache.
+     */
+    public synchronized int getDateCount() {
+        return dateCount;
+    }
+
+    /**
+     * @return number of times dates were found in the cache.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of times dates had to be computed.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of entries removed to make room for new ones.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private static final class Key {
+
+        final RecurrenceRule rule;
+        final long from;
+        final long to;
+
+        Key(RecurrenceRule rule, long from, long to) {
+            this.rule = rule;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key key = (Key) obj;
+            return key.from == from && key.to == to && key.rule.equals(rule);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = rule.hashCode();
+            h = 31 * h + (int) (from ^ from >>> 32);
+            h = 31 * h + (int) (to ^ to >>> 32);
+            return h;
+        }
+    }
+
+}
@@ -0,0 +1,1172 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import java.util.Calendar;
+
+import static com.maltaisn.recurpicker.Recurrence.DAILY;
+import static com.maltaisn.recurpicker.Recurrence.EVERY_DAY_OF_WEEK;
+import static com.maltaisn.recurpicker.Recurrence.HOURLY;
+import static com.maltaisn.recurpicker.Recurrence.LAST_DAY_OF_MONTH;
+import static com.maltaisn.recurpicker.Recurrence.MINUTELY;
+import static com.maltaisn.recurpicker.Recurrence.MONTHLY;
+import static com.maltaisn.recurpicker.Recurrence.NONE;
+import static com.maltaisn.recurpicker.Recurrence.SAME_DAY_OF_MONTH;
+import static com.maltaisn.recurpicker.Recurrence.SAME_DAY_OF_WEEK;
+import static com.maltaisn.recurpicker.Recurrence.WEEKLY;
+import static com.maltaisn.recurpicker.Recurrence.YEARLY;
+
+/**
+ * Position in the events of a recurrence, moved forward one event at a time.
+ * The cursor works on local epoch days with {@link CivilDates} and only converts back to
+ * time in millis when asked, keeping the time of day of the base event.
+ * Hourly and minutely events are instead found with arithmetic on time in millis, every
+ * event being a whole number of periods after the base event.
+ * A cursor takes a copy of the recurrence settings when created so it isn't affected
+ * by later changes to the recurrence.
+ */
+final class RecurrenceCursor {
+
+    // Kernels, each finding the next event for a period and day setting
+    private static final int KERNEL_NONE = 0;
+    private static final int KERNEL_DAILY = 1;
+    private static final int KERNEL_WEEKLY = 2;
+    private static final int KERNEL_MONTHLY_SAME_DAY = 3;
+    private static final int KERNEL_MONTHLY_DAY_OF_WEEK = 4;
+    private static final int KERNEL_MONTHLY_LAST_DAY = 5;
+    private static final int KERNEL_MONTHLY_CLAMPED = 6;  // Invalid monthly setting
+    private static final int KERNEL_YEARLY = 7;
+    private static final int KERNEL_SUB_DAY = 8;  // Hourly and minutely
+
+    private static final long MILLIS_PER_HOUR = 60 * 60 * 1000;
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+    private static final long MILLIS_PER_WEEK = 7 * CivilDates.MILLIS_PER_DAY;
+
+    // Maximum number of days skipped looking for the next hourly or minutely event on a repeated day of
+    // week. Events never happen on these days if there are none after as many skips as minutes in a week.
+    private static final int MAX_SUB_DAY_SKIPS = 7 * 24 * 60;
+
+    private final int kernel;
+    private final int period;
+    private final int frequency;
+    private final int daySetting;
+    private final int endCount;
+    private final long endDay;
+
+    private final ZoneOffsets zone;
+    private final int timeOfDay;
+
+    // Base event day and year, events can't be found before it
+    private final long baseDay;
+    private final int baseYear;
+
+    // Monthly and yearly: day of month of the base event, yearly: month of the base event
+    // Monthly on same day of week: day of week and week of month of the base event, 5 being the last week
+    private final int baseDayOfMonth;
+    private final int baseMonth;
+    private final int baseDayOfWeek;
+    private final int baseWeekOfMonth;
+
+    // Weekly: bit field of the days of week repeated on, and the first of them
+    // Hourly and minutely: same, but 0 if repeating on every day
+    private final int weekDays;
+    private final int firstDayOfWeek;
+
+    // Hourly and minutely: time between events, time of base event and end time exclusive, in millis
+    private final long step;
+    private final long baseTime;
+    private final long endTime;
+
+    // Hourly and minutely on some days of week: time after which events repeat on the same days once
+    // offsets of the zone repeat, 0 if too long. Number of events in that time, -1 if not computed yet.
+    private final long repeatLength;
+    private long repeatCount = -1;
+
+    // Current event
+    private long day;
+    private long repeats;
+
+    // Hourly and minutely: time in millis of current event, or of a time between events after skipping
+    private long eventTime;
+
+    // Weekly: epoch day of the sunday of current week
+    private long weekStart;
+    // Monthly: current month as year * 12 + month. Yearly: current year.
+    // Day of month of current event, which can only decrease when it doesn't exist in a month.
+    private int month;
+    private int year;
+    private int dayOfMonth;
+
+    // Yearly on february 29: number of events after base still on the 29th, -1 if not computed yet
+    private long leapYears = -1;
+
+    /**
+     * Create a cursor positioned on an event of a recurrence.
+     * @param r           recurrence to iterate, must not be {@link Recurrence#NONE}.
+     * @param base        time in millis of the base event.
+     * @param baseRepeats how many events were already repeated when base event happened.
+     * @param zone        time zone in which the recurrence is evaluated.
+     */
+    RecurrenceCursor(Recurrence r, long base, int baseRepeats, ZoneOffsets zone) {
+        // A frequency below 1 can only come from an unvalidated byte array or parcel, no events are found
+        period = r.getFrequency() >= 1 ? r.getPeriod() : NONE;
+        frequency = r.getFrequency();
+        daySetting = r.getDaySetting();
+        endCount = Math.max(r.getEndCount(), 0);
+        endDay = r.hasEndDate() ? CivilDates.toEpochDay(r.getEndDate(), zone) : Long.MAX_VALUE;
+
+        this.zone = zone;
+        timeOfDay = CivilDates.toTimeOfDay(base, zone);
+        day = CivilDates.toEpochDay(base, zone);
+        repeats = baseRepeats;
+
+        int date = CivilDates.toDate(day);
+        year = CivilDates.yearOf(date);
+        month = year * 12 + CivilDates.monthOf(date);
+        dayOfMonth = CivilDates.dayOf(date);
+        weekStart = day - CivilDates.dayOfWeek(day) + 1;
+
+        baseDay = day;
+        baseYear = year;
+        baseDayOfMonth = dayOfMonth;
+        baseMonth = CivilDates.monthOf(date);
+        baseDayOfWeek = CivilDates.dayOfWeek(day);
+        baseWeekOfMonth = (dayOfMonth - 1) / 7 + 1;
+
+        kernel = getKernel(period, daySetting);
+        int days = daySetting & EVERY_DAY_OF_WEEK;
+        weekDays = kernel == KERNEL_SUB_DAY && days == EVERY_DAY_OF_WEEK ? 0 : days;
+        firstDayOfWeek = Integer.numberOfTrailingZeros(weekDays);
+
+        step = frequency * (period == HOURLY ? MILLIS_PER_HOUR : MILLIS_PER_MINUTE);
+        baseTime = base;
+        eventTime = base;
+        if (endDay != Long.MAX_VALUE) {
+            endTime = CivilDates.toMillis(endDay + 1, 0, zone);
+        } else if (kernel == KERNEL_SUB_DAY && weekDays != 0) {
+            // Days of week aren't known after the last day that can be represented
+            endTime = CivilDates.toMillis(CivilDates.MAX_EPOCH_DAY + 1, 0, zone);
+        } else {
+            endTime = Long.MAX_VALUE;
+        }
+        if (kernel == KERNEL_SUB_DAY && weekDays != 0) {
+            // Offsets repeat every 400 years after a time, events after a multiple of both that and the step
+            long cycles = step / gcd(step, ZoneOffsets.CYCLE);
+            repeatLength = cycles <= Long.MAX_VALUE / 4 / ZoneOffsets.CYCLE ? cycles * ZoneOffsets.CYCLE : 0;
+        } else {
+            repeatLength = 0;
+        }
+    }
+
+    private static int getKernel(int period, int daySetting) {
+        switch (period) {
+            case DAILY:
+                return KERNEL_DAILY;
+            case WEEKLY:
+                return KERNEL_WEEKLY;
+            case MONTHLY:
+                switch (daySetting) {
+                    case SAME_DAY_OF_MONTH:
+                        return KERNEL_MONTHLY_SAME_DAY;
+                    case SAME_DAY_OF_WEEK:
+                        return KERNEL_MONTHLY_DAY_OF_WEEK;
+                    case LAST_DAY_OF_MONTH:
+                        return KERNEL_MONTHLY_LAST_DAY;
+                    default:
+                        return KERNEL_MONTHLY_CLAMPED;
+                }
+            case YEARLY:
+                return KERNEL_YEARLY;
+            case HOURLY:
+            case MINUTELY:
+                return KERNEL_SUB_DAY;
+            default:
+                return KERNEL_NONE;
+        }
+    }
+
+    /**
+     * Move the cursor to the next event.
+     * @return true if there was a next event, false if recurrence has ended.
+     */
+    boolean next() {
+        while (true) {
+            if (endCount != 0 && repeats >= endCount) {
+                return false;
+            }
+
+            long next;
+            switch (kernel) {
+                case KERNEL_DAILY:
+                    next = day + frequency;
+                    break;
+
+                case KERNEL_WEEKLY:
+                    next = nextWeeklyDay();
+                    if (next == Long.MIN_VALUE) return false;
+                    break;
+
+                case KERNEL_MONTHLY_SAME_DAY:
+                case KERNEL_MONTHLY_DAY_OF_WEEK:
+                case KERNEL_MONTHLY_LAST_DAY:
+                case KERNEL_MONTHLY_CLAMPED:
+                    month += frequency;
+                    next = monthlyDay();
+                    if (next == Long.MIN_VALUE) continue;  // Day doesn't exist in this month, skip it
+                    break;
+
+                case KERNEL_YEARLY:
+                    year += frequency;
+                    dayOfMonth = Math.min(dayOfMonth, CivilDates.lengthOfMonth(year, baseMonth));
+                    next = CivilDates.toEpochDay(year, baseMonth, dayOfMonth);
+                    break;
+
+                case KERNEL_SUB_DAY:
+                    long time = nextSubDayTime(eventTime);
+                    if (time >= endTime) return false;
+                    eventTime = time;
+                    repeats++;
+                    return true;
+
+                default:
+                    return false;
+            }
+
+            if (next > endDay) {
+                return false;
+            }
+            day = next;
+            repeats++;
+            return true;
+        }
+    }
+
+    /**
+     * Move the cursor to the previous event. The base event is never returned.
+     * @return true if there was a previous event, false if current event is the first one.
+     */
+    boolean previous() {
+        long prev;
+        switch (period) {
+            case DAILY:
+                prev = day - frequency;
+                break;
+
+            case WEEKLY:
+                if (weekDays == 0) return false;
+                int daysBefore = weekDays & daysOfWeekBetween(1, (int) (day - weekStart));
+                if (daysBefore != 0) {
+                    prev = weekStart + highestDayOfWeek(daysBefore) - 1;
+                } else {
+                    prev = weekStart - 7L * frequency + highestDayOfWeek(weekDays) - 1;
+                    if (prev > baseDay) weekStart -= 7L * frequency;
+                }
+                break;
+
+            case MONTHLY:
+                if (kernel == KERNEL_MONTHLY_CLAMPED) {
+                    return false;  // Invalid setting, events can only be found going forward
+                }
+                int startMonth = month;
+                do {
+                    month -= frequency;
+                    prev = monthlyDay();
+                } while (prev == Long.MIN_VALUE && month > startMonth - 12 * 400);
+                if (prev <= baseDay) {
+                    month = startMonth;
+                    return false;
+                }
+                break;
+
+            case YEARLY:
+                long index = (year - baseYear) / frequency - 1;  // Index of previous event after base
+                if (index <= 0) return false;
+                year -= frequency;
+                if (baseMonth == Calendar.FEBRUARY && baseDayOfMonth == 29) {
+                    dayOfMonth = index <= getLeapYears() ? 29 : 28;
+                }
+                prev = CivilDates.toEpochDay(year, baseMonth, dayOfMonth);
+                break;
+
+            case HOURLY:
+            case MINUTELY:
+                long time = previousSubDayTime(eventTime);
+                if (time <= baseTime) return false;
+                eventTime = time;
+                repeats--;
+                return true;
+
+            default:
+                return false;
+        }
+
+        if (prev <= baseDay) {
+            return false;
+        }
+        day = prev;
+        repeats--;
+        return true;
+    }
+
+    /**
+     * @return the last day of week set in a bit field of days.
+     */
+    private static int highestDayOfWeek(int days) {
+        return 31 - Integer.numberOfLeadingZeros(days);
+    }
+
+    /**
+     * @return the number of yearly events after base on february 29th, before one becomes the 28th.
+     */
+    private long getLeapYears() {
+        if (leapYears == -1) {
+            // Leap years repeat every 400 years so there's no need to check further
+            leapYears = Long.MAX_VALUE;
+            for (int i = 1; i <= 400; i++) {
+                if (!CivilDates.isLeapYear((int) CivilDates.floorMod(baseYear + (long) i * frequency, 400))) {
+                    leapYears = i - 1;
+                    break;
+                }
+            }
+        }
+        return leapYears;
+    }
+
+    /**
+     * Check if there's an event on a day, using arithmetic on the period instead of finding events.
+     * The cursor must be on its base event, and it isn't meaningful afterwards.
+     * @param target local epoch day to check.
+     * @return true if there's an event on that day, the base event excluded.
+     */
+    boolean occursOn(long target) {
+        if (kernel == KERNEL_SUB_DAY) {
+            // Check if there's a time between events in that day, which can be the day of the base event
+            long first = timeOnOrAfter(Math.max(CivilDates.toMillis(target, 0, zone), eventTime + 1));
+            if (!isRepeatedDay(target) || first >= Math.min(CivilDates.toMillis(target + 1, 0, zone), endTime)) {
+                return false;
+            }
+            return endCount == 0 || repeats + countUntil(target - 1) < endCount;
+        }
+
+        if (target <= day || target > endDay) {
+            return false;
+        }
+
+        boolean matches;
+        int date;
+        switch (kernel) {
+            case KERNEL_DAILY:
+                matches = (target - day) % frequency == 0;
+                break;
+
+            case KERNEL_WEEKLY:
+                int dayOfWeek = CivilDates.dayOfWeek(target);
+                matches = (weekDays & 1 << dayOfWeek) != 0
+                        && (target - dayOfWeek + 1 - weekStart) % (7L * frequency) == 0;
+                break;
+
+            case KERNEL_MONTHLY_SAME_DAY:
+            case KERNEL_MONTHLY_DAY_OF_WEEK:
+            case KERNEL_MONTHLY_LAST_DAY:
+                date = CivilDates.toDate(target);
+                int months = CivilDates.yearOf(date) * 12 + CivilDates.monthOf(date) - month;
+                matches = months > 0 && months % frequency == 0 && monthlyDay(month + months) == target;
+                break;
+
+            case KERNEL_MONTHLY_CLAMPED:
+                // Day of month depends on previous months, find the events up to that day
+                while (next()) {
+                    if (day >= target) return day == target;
+                }
+                return false;
+
+            case KERNEL_YEARLY:
+                date = CivilDates.toDate(target);
+                int years = CivilDates.yearOf(date) - baseYear;
+                if (years % frequency != 0 || CivilDates.monthOf(date) != baseMonth) return false;
+                int dayOfMonth = baseDayOfMonth;
+                if (baseMonth == Calendar.FEBRUARY && baseDayOfMonth == 29 && years / frequency > getLeapYears()) {
+                    dayOfMonth = 28;
+                }
+                matches = CivilDates.dayOf(date) == dayOfMonth;
+                break;
+
+            default:
+                return false;
+        }
+
+        if (matches && endCount != 0) {
+            // There must be less than the end count of events before that day
+            return repeats + countUntil(target - 1) < endCount;
+        }
+        return matches;
+    }
+
+    /**
+     * Move the cursor forward without stepping through every event, so that the next call to
+     * {@link #next()} returns the first event on or after a day. The number of repeats is updated
+     * to account for all skipped events. The current event isn't meaningful after skipping.
+     * @param fromDay local epoch day, does nothing if not after current event.
+     */
+    void skipTo(long fromDay) {
+        if (kernel == KERNEL_SUB_DAY) {
+            skipSubDay(CivilDates.toMillis(fromDay, 0, zone));
+            return;
+        }
+
+        long target = fromDay - 1;  // Skip all events up to the day before
+        if (target <= day) return;
+
+        long skipped;
+        switch (period) {
+            case DAILY:
+                skipped = (target - day) / frequency;
+                day += skipped * frequency;
+                break;
+
+            case WEEKLY:
+                skipped = skipWeeks(target);
+                break;
+
+            case MONTHLY:
+                if (kernel == KERNEL_MONTHLY_CLAMPED) {
+                    return;
+                }
+                // All events in months before the target month are before target, skip these months
+                int targetDate = CivilDates.toDate(target);
+                long months = CivilDates.floorDiv(CivilDates.yearOf(targetDate) * 12L
+                        + CivilDates.monthOf(targetDate) - month - 1, frequency);
+                if (months <= 0) return;
+                skipped = months;
+                if (kernel == KERNEL_MONTHLY_SAME_DAY && baseDayOfMonth > 28) {
+                    skipped -= countMonthsWithoutDay(months);
+                }
+                month += months * frequency;
+                break;
+
+            case YEARLY:
+                long years = CivilDates.floorDiv(CivilDates.yearOf(CivilDates.toDate(target)) - year - 1L, frequency);
+                if (years <= 0) return;
+                if (baseMonth == Calendar.FEBRUARY && dayOfMonth == 29 && !isLeapYearInYears(years)) {
+                    // Day of month becomes 28 at the first skipped year that isn't a leap year.
+                    dayOfMonth = 28;
+                }
+                skipped = years;
+                year += years * frequency;
+                break;
+
+            default:
+                return;
+        }
+
+        repeats += skipped;
+    }
+
+    /**
+     * Like {@link #skipTo(long)}, but hourly and minutely events are skipped up to a time instead of a day.
+     * @param from time in millis, the next call to {@link #next()} returns the first event on or after it,
+     *             or on or after its day for other periods.
+     */
+    void skipToTime(long from) {
+        if (kernel == KERNEL_SUB_DAY) {
+            skipSubDay(from);
+        } else {
+            skipTo(CivilDates.toEpochDay(from, zone));
+        }
+    }
+
+    /**
+     * Count the events after current event up to a time, moving the cursor past them.
+     * @param time time in millis, exclusive.
+     * @return number of events before this time.
+     */
+    long countBefore(long time) {
+        time = Math.min(time, endTime);  // Nothing to count past the end date
+        if (kernel == KERNEL_SUB_DAY) {
+            return countSubDay(time);
+        }
+
+        long lastDay = CivilDates.toEpochDay(time, zone);
+        if (CivilDates.toMillis(lastDay, timeOfDay, zone) >= time) {
+            lastDay--;  // Event on that day isn't before time
+        }
+        return countUntil(lastDay);
+    }
+
+    /**
+     * Count the events after current event up to a day, moving the cursor past them.
+     * @param lastDay local epoch day, inclusive.
+     * @return number of events up to this day.
+     */
+    long countUntil(long lastDay) {
+        if (kernel == KERNEL_SUB_DAY) {
+            return countSubDay(endOfDay(lastDay));
+        }
+
+        lastDay = Math.min(lastDay, endDay);
+
+        long start = repeats;
+        skipTo(lastDay + 1);
+        long count = repeats;
+        while (next() && day <= lastDay) {
+            count = repeats;
+        }
+        if (endCount != 0) {
+            count = Math.min(count, endCount);
+        }
+        return Math.max(count - start, 0);
+    }
+
+    /**
+     * Find the events after current event up to a day, moving the cursor past them.
+     * Daily events and hourly or minutely events repeated on every day are computed
+     * directly as a progression, other periods step through events.
+     * @param dates   array in which the time in millis of events is written.
+     * @param offset  index of the first date written in the array.
+     * @param lastDay local epoch day, inclusive.
+     * @return number of dates written, no more than the space left in the array.
+     */
+    int fill(long[] dates, int offset, long lastDay) {
+        int count = offset;
+        if (kernel == KERNEL_DAILY) {
+            long n = Math.min(dates.length - offset, (Math.min(lastDay, endDay) - day) / frequency);
+            if (endCount != 0) {
+                n = Math.min(n, endCount - repeats);
+            }
+            for (long i = 1; i <= n; i++) {
+                dates[count++] = CivilDates.toMillis(day + i * frequency, timeOfDay, zone);
+            }
+            if (n > 0) {
+                day += n * frequency;
+                repeats += n;
+            }
+        } else if (kernel == KERNEL_SUB_DAY && weekDays == 0) {
+            long end = endOfDay(lastDay);
+            long n = Math.min(dates.length - offset, timesBefore(end));
+            if (endCount != 0) {
+                n = Math.min(n, endCount - repeats);
+            }
+            for (long i = 1; i <= n; i++) {
+                dates[count++] = eventTime + i * step;
+            }
+            if (n > 0) {
+                eventTime += n * step;
+                repeats += n;
+            }
+        } else {
+            while (count < dates.length && next() && getDay() <= lastDay) {
+                dates[count++] = getTime();
+            }
+        }
+        return count - offset;
+    }
+
+    /**
+     * Get the end of a day for hourly and minutely events.
+     * @param lastDay local epoch day.
+     * @return time in millis of the start of the next day, or the end time if the recurrence
+     * ends before or if the day is the last one that can be represented, for windows without an end.
+     */
+    private long endOfDay(long lastDay) {
+        if (lastDay >= endDay || lastDay >= CivilDates.MAX_EPOCH_DAY) {
+            return endTime;
+        }
+        return CivilDates.toMillis(lastDay + 1, 0, zone);
+    }
+
+    /**
+     * Move the cursor forward by a number of events without stepping through each of them.
+     * @param count number of events to move by.
+     * @return true if cursor is on the event, false if recurrence ended before.
+     */
+    boolean advance(long count) {
+        if (count <= 0) return true;
+        if (endCount != 0 && repeats + count > endCount) return false;
+
+        if (kernel == KERNEL_SUB_DAY) {
+            long time = subDayTimeAfter(count);
+            if (time >= endTime) return false;
+            eventTime = time;
+            repeats += count;
+            return true;
+        }
+
+        switch (period) {
+            case DAILY:
+                day += count * frequency;
+                break;
+
+            case WEEKLY:
+                if (!advanceWeeks(count)) return false;
+                break;
+
+            case MONTHLY:
+                if (kernel == KERNEL_MONTHLY_SAME_DAY && baseDayOfMonth > 28) {
+                    // Find the number of months needed to get enough months with the day in them
+                    long high = count;
+                    while (high - countMonthsWithoutDay(high) < count) {
+                        high *= 2;
+                    }
+                    long low = count;
+                    while (low < high) {
+                        long mid = low + (high - low) / 2;
+                        if (mid - countMonthsWithoutDay(mid) < count) {
+                            low = mid + 1;
+                        } else {
+                            high = mid;
+                        }
+                    }
+                    month += low * frequency;
+                } else if (kernel != KERNEL_MONTHLY_CLAMPED) {
+                    month += count * frequency;
+                } else {
+                    return advanceByStepping(count);
+                }
+                day = monthlyDay();
+                break;
+
+            case YEARLY:
+                if (baseMonth == Calendar.FEBRUARY && dayOfMonth == 29 && !isLeapYearInYears(count)) {
+                    dayOfMonth = 28;
+                }
+                year += count * frequency;
+                day = CivilDates.toEpochDay(year, baseMonth, dayOfMonth);
+                break;
+
+            default:
+                return false;
+        }
+
+        if (day > endDay) return false;
+        repeats += count;
+        return true;
+    }
+
+    private boolean advanceByStepping(long count) {
+        for (long i = 0; i < count; i++) {
+            if (!next()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Move forward by a number of weekly events.
+     * @return false if not repeating on any day.
+     */
+    private boolean advanceWeeks(long count) {
+        int days = weekDays;
+        if (days == 0) return false;
+
+        int dayOfWeek = (int) (day - weekStart) + 1;
+        int daysLeft = days & daysOfWeekBetween(dayOfWeek + 1, 7);
+        int inFirstWeek = Integer.bitCount(daysLeft);
+        if (count <= inFirstWeek) {
+            day = weekStart + nthDayOfWeek(daysLeft, (int) count) - 1;
+        } else {
+            long left = count - inFirstWeek;
+            int perWeek = Integer.bitCount(days);
+            weekStart += ((left - 1) / perWeek + 1) * 7 * frequency;
+            day = weekStart + nthDayOfWeek(days, (int) ((left - 1) % perWeek) + 1) - 1;
+        }
+        return true;
+    }
+
+    /**
+     * @return the nth day of week set in a bit field of days, 1 being the first.
+     */
+    private static int nthDayOfWeek(int days, int n) {
+        for (int i = 1; i < n; i++) {
+            days &= days - 1;  // Remove lowest day
+        }
+        return Integer.numberOfTrailingZeros(days);
+    }
+
+    /**
+     * Check if all of the next years of a yearly recurrence are leap years.
+     * @param years number of years after the current year to check.
+     */
+    private boolean isLeapYearInYears(long years) {
+        // Leap years repeat every 400 years so there's no need to check further
+        for (long i = 1; i <= years && i <= 400; i++) {
+            if (!CivilDates.isLeapYear((int) CivilDates.floorMod(year + i * frequency, 400))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skip weekly events up to a day.
+     * @param target last epoch day to skip, after current event.
+     * @return number of events skipped.
+     */
+    private long skipWeeks(long target) {
+        int days = weekDays;
+        if (days == 0) return 0;
+
+        // Find the last repeated week on or before target, a day in the weeks in between is clamped to saturday.
+        long weeks = CivilDates.floorDiv(target - weekStart, 7L * frequency);
+        long targetWeekStart = weekStart + weeks * 7 * frequency;
+        int targetDayOfWeek = (int) Math.min(target - targetWeekStart, 6) + 1;
+        int dayOfWeek = (int) (day - weekStart) + 1;
+
+        long skipped;
+        if (weeks == 0) {
+            skipped = Integer.bitCount(days & daysOfWeekBetween(dayOfWeek + 1, targetDayOfWeek));
+        } else {
+            skipped = Integer.bitCount(days & daysOfWeekBetween(dayOfWeek + 1, 7))
+                    + (weeks - 1) * Integer.bitCount(days)
+                    + Integer.bitCount(days & daysOfWeekBetween(1, targetDayOfWeek));
+        }
+
+        weekStart = targetWeekStart;
+        day = targetWeekStart + targetDayOfWeek - 1;
+        return skipped;
+    }
+
+    /**
+     * @return bit field of days of week from {@code first} to {@code last} inclusively.
+     */
+    private static int daysOfWeekBetween(int first, int last) {
+        if (first > last) return 0;
+        return (1 << last + 1) - (1 << first);
+    }
+
+    /**
+     * Count the months without an event when repeating on the same day of month, for days 29 to 31.
+     * @param months number of months after current month to check.
+     * @return number of months in which day doesn't exist.
+     */
+    private long countMonthsWithoutDay(long months) {
+        // Month of year of month + i * frequency repeats every 12 / gcd(frequency, 12) months.
+        int cycle = 12 / gcd(frequency, 12);
+        long count = 0;
+        for (int i = 1; i <= cycle && i <= months; i++) {
+            long first = month + (long) i * frequency;
+            int monthOfYear = (int) CivilDates.floorMod(first, 12);
+            long monthsInClass = (months - i) / cycle + 1;
+            if (monthOfYear != Calendar.FEBRUARY) {
+                if (CivilDates.lengthOfMonth(0, monthOfYear) < baseDayOfMonth) {
+                    count += monthsInClass;
+                }
+            } else if (baseDayOfMonth > 29) {
+                count += monthsInClass;
+            } else {
+                // Only february of years that are not leap years
+                long yearStep = (long) frequency * cycle / 12;
+                count += monthsInClass - countLeapYears(CivilDates.floorDiv(first, 12), yearStep, monthsInClass);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count the leap years among {@code count} years, starting at {@code year}, every {@code step} years.
+     */
+    private static long countLeapYears(long year, long step, long count) {
+        // Leap years repeat every 400 years
+        int cycle = 400 / gcd((int) (step % 400), 400);
+        long leapInCycle = 0;
+        long leapInRemainder = 0;
+        long remainder = count % cycle;
+        for (int i = 0; i < cycle && i < count; i++) {
+            if (CivilDates.isLeapYear((int) CivilDates.floorMod(year + i * step, 400))) {
+                leapInCycle++;
+                if (i < remainder) leapInRemainder++;
+            }
+        }
+        return count / cycle * leapInCycle + leapInRemainder;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Get the day of the next weekly event, moving to the next repeated week if needed.
+     * @return the epoch day, or {@link Long#MIN_VALUE} if not repeating on any day.
+     */
+    private long nextWeeklyDay() {
+        if (weekDays == 0) {
+            return Long.MIN_VALUE;  // Not repeating on any day, would never find an event
+        }
+        int dayOfWeek = (int) (day - weekStart) + 1;
+        int daysAfter = weekDays & -(2 << dayOfWeek);  // Clear current day and days before it
+        if (daysAfter != 0) {
+            return weekStart + Integer.numberOfTrailingZeros(daysAfter) - 1;
+        }
+        weekStart += 7L * frequency;
+        return weekStart + firstDayOfWeek - 1;
+    }
+
+    /**
+     * Get the day of the event in current month.
+     * @return the epoch day, or {@link Long#MIN_VALUE} if there's no event in this month.
+     */
+    private long monthlyDay() {
+        return monthlyDay(month);
+    }
+
+    /**
+     * Get the day of the event in a month.
+     * @param month month as year * 12 + month.
+     * @return the epoch day, or {@link Long#MIN_VALUE} if there's no event in this month.
+     */
+    private long monthlyDay(int month) {
+        int y = CivilDates.floorDiv(month, 12);
+        int m = month - y * 12;
+        int length = CivilDates.lengthOfMonth(y, m);
+        long first = CivilDates.toEpochDay(y, m, 1);
+        switch (kernel) {
+            case KERNEL_MONTHLY_LAST_DAY:
+                return first + length - 1;
+
+            case KERNEL_MONTHLY_SAME_DAY:
+                if (baseDayOfMonth > length) return Long.MIN_VALUE;
+                return first + baseDayOfMonth - 1;
+
+            case KERNEL_MONTHLY_DAY_OF_WEEK:
+                if (baseWeekOfMonth == 5) {
+                    // Day of last week, there may not always be 5 mondays for example so consider it last
+                    long last = first + length - 1;
+                    return last - (CivilDates.dayOfWeek(last) - baseDayOfWeek + 7) % 7;
+                }
+                return first + (baseDayOfWeek - CivilDates.dayOfWeek(first) + 7) % 7 + (baseWeekOfMonth - 1) * 7;
+
+            default:
+                dayOfMonth = Math.min(dayOfMonth, length);
+                return first + dayOfMonth - 1;
+        }
+    }
+
+    /**
+     * @return true if hourly or minutely events happen on a local epoch day's day of week.
+     */
+    private boolean isRepeatedDay(long day) {
+        return weekDays == 0 || (weekDays & 1 << CivilDates.dayOfWeek(day)) != 0;
+    }
+
+    /**
+     * @return the first time between hourly or minutely events on or after a time.
+     */
+    private long timeOnOrAfter(long time) {
+        return baseTime - CivilDates.floorDiv(baseTime - time, step) * step;
+    }
+
+    /**
+     * @return the last time between hourly or minutely events before a time.
+     */
+    private long timeBefore(long time) {
+        return baseTime + CivilDates.floorDiv(time - 1 - baseTime, step) * step;
+    }
+
+    /**
+     * @return the number of times between hourly or minutely events after current event and before a time.
+     */
+    private long timesBefore(long time) {
+        return time > eventTime ? (time - eventTime - 1) / step : 0;
+    }
+
+    /**
+     * Get the time of the next hourly or minutely event on a repeated day of week.
+     * @param after time in millis between events, exclusive.
+     * @return the time in millis, or {@link Long#MAX_VALUE} if there are none.
+     */
+    private long nextSubDayTime(long after) {
+        long time = after + step;
+        for (int i = 0; i < MAX_SUB_DAY_SKIPS; i++) {
+            if (weekDays == 0) return time;
+            long day = CivilDates.toEpochDay(time, zone);
+            int dayOfWeek = CivilDates.dayOfWeek(day);
+            if ((weekDays & 1 << dayOfWeek) != 0) return time;
+
+            // Skip to the first time on the next repeated day
+            int daysAfter = weekDays & -(2 << dayOfWeek);
+            int nextDayOfWeek = daysAfter != 0 ? Integer.numberOfTrailingZeros(daysAfter) : firstDayOfWeek + 7;
+            time = timeOnOrAfter(CivilDates.toMillis(day + nextDayOfWeek - dayOfWeek, 0, zone));
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Get the time of the previous hourly or minutely event on a repeated day of week.
+     * @param before time in millis between events, exclusive.
+     * @return the time in millis, no more than the base time if there are none after it.
+     */
+    private long previousSubDayTime(long before) {
+        long time = before - step;
+        for (int i = 0; i < MAX_SUB_DAY_SKIPS; i++) {
+            if (weekDays == 0 || time <= baseTime) return time;
+            long day = CivilDates.toEpochDay(time, zone);
+            int dayOfWeek = CivilDates.dayOfWeek(day);
+            if ((weekDays & 1 << dayOfWeek) != 0) return time;
+
+            // Skip to the last time on the previous repeated day
+            int daysBefore = weekDays & daysOfWeekBetween(1, dayOfWeek - 1);
+            int prevDayOfWeek = daysBefore != 0 ? highestDayOfWeek(daysBefore) : highestDayOfWeek(weekDays) - 7;
+            time = timeBefore(CivilDates.toMillis(day + prevDayOfWeek - dayOfWeek + 1, 0, zone));
+        }
+        return baseTime;
+    }
+
+    /**
+     * Skip hourly or minutely events before a time, moving to the last time between events before it.
+     * @param target time in millis, exclusive, does nothing if not after current time.
+     */
+    private void skipSubDay(long target) {
+        if (target <= eventTime) return;
+        repeats += countSubDayEvents(target, endCount != 0 ? endCount - repeats : Long.MAX_VALUE);
+        eventTime = timeBefore(target);
+    }
+
+    /**
+     * Count the hourly or minutely events after current event up to a time, moving the cursor past them.
+     * @param target time in millis, exclusive.
+     * @return number of events before this time.
+     */
+    private long countSubDay(long target) {
+        long start = repeats;
+        skipSubDay(target);
+        long count = repeats;
+        if (endCount != 0) {
+            count = Math.min(count, endCount);
+        }
+        return Math.max(count - start, 0);
+    }
+
+    /**
+     * Count the hourly or minutely events after current event and before a time, not considering the end.
+     * @param target time in millis, exclusive.
+     * @param limit  count at which counting can stop, the result is then at least this.
+     * @return the number of events.
+     */
+    private long countSubDayEvents(long target, long limit) {
+        if (weekDays == 0) {
+            return timesBefore(target);
+        }
+        return countRepeatedDays(eventTime + 1, target, limit);
+    }
+
+    /**
+     * Count the hourly or minutely events on repeated days of week between two times.
+     * The time is split where the offset of the zone changes and whole weeks are counted arithmetically,
+     * so the time taken grows with the number of changes, until the limit is reached. Once offsets repeat,
+     * whole repeat lengths are skipped too.
+     * @param from  time in millis, inclusive.
+     * @param to    time in millis, exclusive.
+     * @param limit count at which counting can stop, the result is then at least this.
+     * @return the number of events.
+     */
+    private long countRepeatedDays(long from, long to, long limit) {
+        long count = 0;
+        long time = from;
+        while (time < to && count < limit) {
+            if (repeatLength != 0 && time >= ZoneOffsets.CYCLE_START && to - time > 2 * repeatLength) {
+                if (repeatCount == -1) {
+                    repeatCount = countRepeatedDays(time, time + repeatLength, Long.MAX_VALUE);
+                }
+                long repeated = (to - time) / repeatLength - 1;
+                count += repeated * repeatCount;
+                time += repeated * repeatLength;
+            } else {
+                long end = zone.nextTransition(time, to);
+                count += countWithOffset(time, end, zone.getOffset(time));
+                time = end;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count the hourly or minutely events on repeated days of week between two times with the same offset.
+     * Only the days of the first and last weeks are walked.
+     * @param from   time in millis, inclusive.
+     * @param to     time in millis, exclusive.
+     * @param offset offset of the zone between the times.
+     * @return the number of events.
+     */
+    private long countWithOffset(long from, long to, int offset) {
+        // Whole weeks from sunday, starting and ending on local midnight between the times
+        long firstDay = CivilDates.floorDiv(from + offset - 1, CivilDates.MILLIS_PER_DAY) + 1;
+        long lastDay = CivilDates.floorDiv(to + offset, CivilDates.MILLIS_PER_DAY);
+        long firstWeek = firstDay + CivilDates.floorMod(1 - CivilDates.dayOfWeek(firstDay), 7);
+        long lastWeek = lastDay - CivilDates.dayOfWeek(lastDay) + 1;
+        if (firstWeek >= lastWeek) {
+            return countDays(from, to, offset);
+        }
+
+        long weeks = (lastWeek - firstWeek) / 7;
+        long base = baseTime + offset;  // Local time of base event
+        long count = 0;
+        for (int dayOfWeek = Calendar.SUNDAY; dayOfWeek <= Calendar.SATURDAY; dayOfWeek++) {
+            if ((weekDays & 1 << dayOfWeek) != 0) {
+                long start = (firstWeek + dayOfWeek - 1) * CivilDates.MILLIS_PER_DAY;
+                count += countInWeeks(start + CivilDates.MILLIS_PER_DAY, weeks, base)
+                        - countInWeeks(start, weeks, base);
+            }
+        }
+        return count + countDays(from, firstWeek * CivilDates.MILLIS_PER_DAY - offset, offset)
+                + countDays(lastWeek * CivilDates.MILLIS_PER_DAY - offset, to, offset);
+    }
+
+    /**
+     * Count the hourly or minutely events on repeated days of week between two times with the same offset,
+     * day by day.
+     */
+    private long countDays(long from, long to, int offset) {
+        long count = 0;
+        long lastDay = CivilDates.floorDiv(to - 1 + offset, CivilDates.MILLIS_PER_DAY);
+        for (long d = CivilDates.floorDiv(from + offset, CivilDates.MILLIS_PER_DAY); d <= lastDay; d++) {
+            if (isRepeatedDay(d)) {
+                long start = Math.max(d * CivilDates.MILLIS_PER_DAY - offset, from);
+                long end = Math.min((d + 1) * CivilDates.MILLIS_PER_DAY - offset, to);
+                if (end > start) {
+                    count += (timeOnOrAfter(end) - timeOnOrAfter(start)) / step;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sum the number of hourly or minutely events before a local time, and before the same time
+     * in each of the following weeks. The sum can overflow, but differences of sums are exact.
+     * @param time  local time in millis.
+     * @param weeks number of weeks.
+     * @param base  local time in millis of the base event.
+     * @return the sum of the number of events after base event, negative before it.
+     */
+    private long countInWeeks(long time, long weeks, long base) {
+        long first = time - base + step - 1;
+        return weeks * CivilDates.floorDiv(first, step)
+                + floorSum(weeks, step, MILLIS_PER_WEEK, CivilDates.floorMod(first, step));
+    }
+
+    /**
+     * Compute the sum of {@code floor((a * i + b) / m)} for {@code i} from 0 to {@code n - 1},
+     * in a number of steps logarithmic in {@code m}, with overflow wrapping around.
+     * @param n number of terms.
+     * @param m divisor, positive.
+     * @param a at least 0.
+     * @param b at least 0 and less than the divisor.
+     */
+    private static long floorSum(long n, long m, long a, long b) {
+        long sum = 0;
+        while (true) {
+            if (a >= m) {
+                // Half of the even factor first, so that the product only overflows by wrapping around
+                long triangle = (n & 1) == 0 ? n / 2 * (n - 1) : (n - 1) / 2 * n;
+                sum += triangle * (a / m);
+                a %= m;
+            }
+            if (b >= m) {
+                sum += n * (b / m);
+                b %= m;
+            }
+            long max = a * n + b;
+            if (max < m) {
+                return sum;
+            }
+
+            // Count the points under the line the other way around
+            n = max / m;
+            b = max % m;
+            long t = m;
+            m = a;
+            a = t;
+        }
+    }
+
+    /**
+     * Find the time of an hourly or minutely event after current event.
+     * When repeating on some days of week only, the number of steps needed is searched by counting events.
+     * @param count number of events after current event, at least 1.
+     * @return time in millis of the event, or {@link Long#MAX_VALUE} if there is no such event.
+     */
+    private long subDayTimeAfter(long count) {
+        if (weekDays == 0) {
+            return count <= (Long.MAX_VALUE - eventTime) / step ? eventTime + count * step : Long.MAX_VALUE;
+        }
+
+        // Double the number of steps until there are enough events, then search between
+        long maxSteps = (endTime - 1 - eventTime) / step;
+        long high = count;
+        while (true) {
+            if (high >= maxSteps) {
+                high = maxSteps;
+                if (countSubDayEvents(eventTime + high * step + 1, count) < count) {
+                    return Long.MAX_VALUE;
+                }
+                break;
+            } else if (countSubDayEvents(eventTime + high * step + 1, count) >= count) {
+                break;
+            }
+            high *= 2;
+        }
+        long low = count;
+        while (low < high) {
+            long mid = low + (high - low) / 2;
+            if (countSubDayEvents(eventTime + mid * step + 1, count) < count) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return eventTime + low * step;
+    }
+
+    /**
+     * @return local epoch day of current event.
+     */
+    long getDay() {
+        return kernel == KERNEL_SUB_DAY ? CivilDates.toEpochDay(eventTime, zone) : day;
+    }
+
+    /**
+     * @return time in millis of current event.
+     */
+    long getTime() {
+        return kernel == KERNEL_SUB_DAY ? eventTime : CivilDates.toMillis(day, timeOfDay, zone);
+    }
+
+    /**
+     * @return how many events were repeated up to current event.
+     */
+    long getRepeats() {
+        return repeats;
+    }
+
+}
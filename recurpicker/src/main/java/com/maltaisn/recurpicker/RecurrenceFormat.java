@@ -37,8 +37,6 @@ public class RecurrenceFormat {
     private Resources res;
     private DateFormat dateFormat;
 
-    private Calendar calendar;
-
     /**
      * Create a new recurrence formatter
      * @param context    any context
@@ -47,8 +45,6 @@ public class RecurrenceFormat {
     public RecurrenceFormat(Context context, DateFormat dateFormat) {
         res = context.getResources();
         this.dateFormat = dateFormat;
-
-        calendar = Calendar.getInstance();
     }
 
     /**
@@ -92,12 +88,19 @@ public class RecurrenceFormat {
             case Recurrence.YEARLY:
                 baseText = res.getQuantityString(R.plurals.rp_format_year, freq);
                 break;
+            case Recurrence.HOURLY:
+                baseText = res.getQuantityString(R.plurals.rp_format_hour, freq);
+                break;
+            case Recurrence.MINUTELY:
+                baseText = res.getQuantityString(R.plurals.rp_format_minute, freq);
+                break;
         }
         recurSb.append(String.format(baseText.replace("|", ""), freq));
 
         // Day setting
         if (!r.isDefault()) {
-            if (period == Recurrence.WEEKLY) {
+            if (period == Recurrence.WEEKLY || (period == Recurrence.HOURLY
+                    || period == Recurrence.MINUTELY) && r.getDaySetting() != 0) {
                 // Make a list of days of week
                 StringBuilder weekOptionStr = new StringBuilder();
                 if (r.getDaySetting() == Recurrence.EVERY_DAY_OF_WEEK) {
@@ -127,7 +130,7 @@ public class RecurrenceFormat {
 
                     case Recurrence.SAME_DAY_OF_WEEK:
                         // on every [nth] [Sunday]
-                        recurSb.append(getSameDayOfSameWeekString(r.getStartDate()));
+                        recurSb.append(getSameDayOfSameWeekString(r));
                         break;
 
                     case Recurrence.LAST_DAY_OF_MONTH:
@@ -158,12 +161,12 @@ public class RecurrenceFormat {
     }
 
     /**
-     * Get the text for a date to display on a monthly recurrence repeated on the same day of week of same week
-     * @param date date to get it for
+     * Get the text to display on a monthly recurrence repeated on the same day of week of same week
+     * @param r recurrence to get it for, its start date in its time zone is used
      * @return eg: "on third Sunday" or "on last Friday"
      */
-    String getSameDayOfSameWeekString(long date) {
-        calendar.setTimeInMillis(date);
+    String getSameDayOfSameWeekString(Recurrence r) {
+        Calendar calendar = r.toCalendar(r.getStartDate());
 
         Locale locale = ConfigurationCompat.getLocales(res.getConfiguration()).get(0);
         String[] daysStr = res.getStringArray(R.array.rp_format_monthly_same_week);
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import android.support.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the dates of a recurrence, computing each date only when asked for it.
+ * Use {@link #nextLong()} to get dates without boxing them.
+ * The iterator keeps a copy of the recurrence settings when created so it isn't affected
+ * by later changes to the recurrence. Create one with {@link Recurrence#iterator(long)},
+ * or with {@link Recurrence#descendingIterator(long)} to get dates in reverse order.
+ */
+public final class RecurrenceIterator implements Iterator<Long> {
+
+    private final @Nullable RecurrenceCursor cursor;
+    private final long fromDay;
+    private final boolean descending;
+
+    private boolean hasNext;
+    private boolean fetched;
+
+    /**
+     * Create an iterator going forward.
+     * @param cursor  cursor positioned before the first date, null if there are no dates.
+     * @param fromDay first local epoch day on which dates can be returned.
+     */
+    RecurrenceIterator(@Nullable RecurrenceCursor cursor, long fromDay) {
+        this.cursor = cursor;
+        this.fromDay = fromDay;
+        descending = false;
+        fetched = cursor == null;
+    }
+
+    /**
+     * Create an iterator going backward.
+     * @param cursor cursor positioned on the first date, null if there are no dates.
+     */
+    RecurrenceIterator(@Nullable RecurrenceCursor cursor) {
+        this.cursor = cursor;
+        fromDay = Long.MIN_VALUE;
+        descending = true;
+        hasNext = cursor != null;
+        fetched = true;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!fetched) {
+            assert cursor != null;
+            if (descending) {
+                hasNext = cursor.previous();
+            } else {
+                do {
+                    hasNext = cursor.next();
+                } while (hasNext && cursor.getDay() < fromDay);
+            }
+            fetched = true;
+        }
+        return hasNext;
+    }
+
+    /**
+     * Get the next date without boxing it.
+     * @return time in millis of next date.
+     * @throws NoSuchElementException if there are no more dates.
+     */
+    public long nextLong() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("Recurrence has no more dates");
+        }
+        fetched = false;
+        assert cursor != null;
+        return cursor.getTime();
+    }
+
+    @Override
+    public Long next() {
+        return nextLong();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Recurrence dates cannot be removed");
+    }
+
+}
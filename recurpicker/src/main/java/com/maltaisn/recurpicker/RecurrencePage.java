@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * A page of recurrence dates, returned by {@link Recurrence#findRecurrencePage(long, int)}.
+ * The page comes with a token to get the next page, which only needs the recurrence to be
+ * resumed: the dates before it aren't found again.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class RecurrencePage {
+
+    /**
+     * Token to get the first page of a recurrence.
+     */
+    public static final long FIRST_PAGE = -1;
+
+    private final List<Long> dates;
+    private final long nextToken;
+    private final boolean isLast;
+
+    RecurrencePage(@NonNull List<Long> dates, long nextToken, boolean isLast) {
+        this.dates = dates;
+        this.nextToken = nextToken;
+        this.isLast = isLast;
+    }
+
+    /**
+     * @return the dates in this page, in chronological order.
+     */
+    @NonNull
+    public List<Long> getDates() {
+        return dates;
+    }
+
+    /**
+     * Get the token for the next page. The token encodes the position of the next date and
+     * a hash of the recurrence settings. It can be stored and used later, as long as the
+     * recurrence isn't changed.
+     * @return the token.
+     */
+    public long getNextToken() {
+        return nextToken;
+    }
+
+    /**
+     * @return true if there are no dates after this page.
+     */
+    public boolean isLast() {
+        return isLast;
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Objects;
+import java.util.TimeZone;
+
+/**
+ * Settings of a {@link RecurrenceRule} that don't depend on when it starts and ends:
+ * its period, frequency, day setting and time zone. Patterns are immutable, so many rules
+ * can share the same one, see {@link RecurrencePool}.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class RecurrencePattern {
+
+    private final boolean isDefault;
+    private final int period;
+    private final int frequency;
+    private final int daySetting;
+    private final ZoneOffsets zone;  // null for the default time zone
+
+    private final int hash;
+
+    /**
+     * Create a pattern with the settings of a recurrence.
+     * @param r recurrence to copy.
+     */
+    RecurrencePattern(@NonNull Recurrence r) {
+        isDefault = r.isDefault();
+        period = r.getPeriod();
+        frequency = r.getFrequency();
+        daySetting = r.getDaySetting();
+        zone = r.zone;
+
+        int h = isDefault ? 1 : 0;
+        h = 31 * h + period;
+        h = 31 * h + frequency;
+        h = 31 * h + daySetting;
+        h = 31 * h + (zone != null ? zone.hashCode() : 0);
+        hash = h;
+    }
+
+    /**
+     * Gets the period of the pattern.
+     * @return either {@code NONE}, {@code DAILY}, {@code WEEKLY}, {@code MONTHLY}, {@code YEARLY},
+     * {@code HOURLY} or {@code MINUTELY}.
+     */
+    @Recurrence.RecurrencePeriod
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Gets the frequency of the period.
+     * @return frequency, 1 repeats every period, 2 repeats every other period, etc.
+     */
+    public int getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Gets the set weekly or monthly setting specifying on which day to repeat on.
+     * @return same as {@link Recurrence#getDaySetting()}.
+     */
+    public int getDaySetting() {
+        return daySetting;
+    }
+
+    /**
+     * Gets the time zone in which dates are found.
+     * @return a copy of the time zone, null if the default time zone is used.
+     */
+    @Nullable
+    public TimeZone getTimeZone() {
+        return zone != null ? (TimeZone) zone.zone.clone() : null;
+    }
+
+    /**
+     * @return offsets of the time zone of the pattern, null for the default time zone.
+     */
+    @Nullable
+    ZoneOffsets getZoneOffsets() {
+        return zone;
+    }
+
+    /**
+     * Check if a pattern is default.
+     * @return true if pattern is default.
+     * @see Recurrence#setDefault(boolean)
+     */
+    public boolean isDefault() {
+        return isDefault;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (!(obj instanceof RecurrencePattern)) return false;
+
+        RecurrencePattern p = (RecurrencePattern) obj;
+        return p.hash == hash &&
+                p.period == period &&
+                p.frequency == frequency &&
+                p.daySetting == daySetting &&
+                p.isDefault == isDefault &&
+                Objects.equals(p.zone, zone);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+}
@@ -173,6 +173,9 @@ public class RecurrencePickerDialog extends AppCompatDialogFragment implements R
 
     @Override
     public RecurrencePickerSettings setRecurrence(@Nullable Recurrence recurrence, long startDate) {
+        if (recurrence != null) {
+            RecurrencePickerView.checkPeriodSupported(recurrence);
+        }
         this.recurrence = recurrence;
         this.startDate = startDate;
         return this;
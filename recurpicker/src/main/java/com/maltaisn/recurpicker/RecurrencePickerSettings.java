@@ -71,6 +71,8 @@ public interface RecurrencePickerSettings {
      * Call this method to initialize the recurrence picker with a recurrence and a date.
      * @param recurrence Recurrence to display, use null for the default "does not repeat".
      * @param startDate  Starting date of recurrence to be returned, use {@code 0} for today.
+     * @throws IllegalArgumentException if the recurrence is {@link Recurrence#HOURLY} or
+     *                                  {@link Recurrence#MINUTELY}, the picker has no such periods.
      */
     RecurrencePickerSettings setRecurrence(@Nullable Recurrence recurrence, long startDate);
 
@@ -182,6 +184,7 @@ public interface RecurrencePickerSettings {
      * @param titles   Array of titles to use for each recurrence, leave null to use
      *                 {@link RecurrenceFormat#format(Recurrence)} instead. You can also leave
      *                 specific items in array null to only format those.
+     * @throws IllegalArgumentException if a recurrence is hourly or minutely.
      */
     RecurrencePickerSettings setOptionListDefaults(@Nullable Recurrence[] defaults, @Nullable CharSequence[] titles);
 
@@ -59,6 +59,7 @@ import android.widget.ToggleButton;
 
 import java.text.DateFormat;
 import java.util.Calendar;
+import java.util.TimeZone;
 
 @SuppressWarnings({"SameParameterValue", "UnusedReturnValue"})
 public class RecurrencePickerView extends LinearLayout implements RecurrencePickerSettings {
@@ -282,7 +283,7 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
                                 // Otherwise create a recurrence of the selected option
                                 period = selectedOption - 2;
                             }
-                            recurrence = new Recurrence(recurrence.getStartDate(), period);
+                            recurrence = createRecurrence(recurrence.getStartDate(), period);
                         }
 
                         if (creatorListener != null) {
@@ -368,8 +369,7 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
                 if (position == Recurrence.END_BY_DATE) {
                     if (endDate == null) {
                         // No end date set, create a default one from specified settings
-                        endDate = Calendar.getInstance();
-                        endDate.setTimeInMillis(startDate);
+                        endDate = recurrence.toCalendar(startDate);
                         int period = recurPeriodSpin.getSelectedItemPosition();
                         if (defaultEndDateUsePeriod && period != Recurrence.DAILY) {
                             if (period == Recurrence.WEEKLY) {
@@ -385,6 +385,7 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
 
                         // Check if default end date is not after maximum end date (if set)
                         if (maxEndDate != -1) {
+                            poolCal.setTimeZone(endDate.getTimeZone());
                             poolCal.setTimeInMillis(maxEndDate);
                             if (Recurrence.isOnSameDayOrAfter(endDate, poolCal)) {
                                 endDate.setTimeInMillis(maxEndDate);
@@ -537,7 +538,7 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
                         int period = recurPeriodSpin.getSelectedItemPosition();
                         int freq = Integer.valueOf(freqEdit.getText().toString());
 
-                        recurrence = new Recurrence(startDate, period).setFrequency(freq);
+                        recurrence = createRecurrence(startDate, period).setFrequency(freq);
 
                         if (period == Recurrence.WEEKLY) {
                             int days = 0;
@@ -560,7 +561,7 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
                             recurrence.setEndByCount(endCount);
                         }
                     } else {
-                        recurrence = new Recurrence(startDate, Recurrence.NONE);
+                        recurrence = createRecurrence(startDate, Recurrence.NONE);
                     }
 
                     if (listener != null) {
@@ -639,12 +640,11 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
             freqEdit.setText(String.valueOf(recurrence.getFrequency()));
 
             // Set text for "on third Sunday of month" radio according to start date
-            sameWeekRadio.setText(formatter.getSameDayOfSameWeekString(recurrence.getStartDate()));
+            sameWeekRadio.setText(formatter.getSameDayOfSameWeekString(recurrence));
 
             // Show "on last day of month" radio if start date is on last day of month
-            poolCal.setTimeInMillis(recurrence.getStartDate());
-            boolean isOnLastDayOfMonth = poolCal.get(Calendar.DAY_OF_MONTH) == poolCal.getActualMaximum(Calendar.DAY_OF_MONTH);
-            lastDayRadio.setVisibility(isOnLastDayOfMonth ? View.VISIBLE : View.GONE);
+            Calendar startCal = recurrence.toCalendar(recurrence.getStartDate());
+            lastDayRadio.setVisibility(Recurrence.isOnLastDayOfMonth(startCal) ? View.VISIBLE : View.GONE);
 
             // Select days of week matching recurrence's settings
             if (recurrence.getPeriod() == Recurrence.WEEKLY) {
@@ -655,8 +655,7 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
             } else {
                 // If weekly is not the current period, set the default for when it will be selected
                 // Default is repeat on the same day of week as start date
-                poolCal.setTimeInMillis(recurrence.getStartDate());
-                int day = poolCal.get(Calendar.DAY_OF_WEEK) - 1;
+                int day = startCal.get(Calendar.DAY_OF_WEEK) - 1;
                 for (int i = 0; i < 7; i++) {
                     weekButtons[i].setChecked(i == day);
                 }
@@ -673,8 +672,7 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
             // Set up end type and values
             long end = recurrence.getEndDate();
             if (end != -1) {
-                if (endDate == null) endDate = Calendar.getInstance();
-                endDate.setTimeInMillis(end);
+                endDate = recurrence.toCalendar(end);
             }
             endCount = recurrence.getEndCount();
             if (endCount == -1) {
@@ -692,9 +690,10 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
                 pos = 1;
                 showCustom = false;
             } else {
-                // Check if selected recurrence matches one of the defaults
+                // Check if selected recurrence matches one of the defaults, even if created differently
+                Recurrence canonical = new Recurrence(recurrence).canonicalize();
                 for (int i = 0; i < optionListDefaults.length; i++) {
-                    if (recurrence.equals(optionListDefaults[i], true)) {
+                    if (canonical.equals(new Recurrence(optionListDefaults[i]).canonicalize(), true)) {
                         pos = i + 2;
                         showCustom = false;
                         break;
@@ -756,12 +755,35 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
         doneBtn.setEnabled(enabled);
     }
 
+    /**
+     * Create a recurrence in the time zone of the current recurrence
+     * @param start  start date of the recurrence
+     * @param period period of the recurrence
+     * @return the new recurrence
+     */
+    private Recurrence createRecurrence(long start, int period) {
+        return new Recurrence(start, period, recurrence != null ? recurrence.getTimeZone() : null);
+    }
+
+    /**
+     * Set the start date and time zone of the option list defaults to those of the current recurrence,
+     * so they can be compared with it and selected without changing its time zone
+     * @param start start date of the defaults
+     */
+    private void adjustOptionListDefaults(long start) {
+        TimeZone zone = recurrence.getTimeZone();
+        for (Recurrence r : optionListDefaults) {
+            r.setTimeZone(zone);
+            r.setStartDate(start);
+        }
+    }
+
     private void selectDefaultOption(int pos) {
         // User selected a default option, create the recurrence
         // If pos==0, the custom recurrence that was already selected is selected
         if (pos == 1) {
             // Does not repeat
-            recurrence = new Recurrence(startDate, Recurrence.NONE);
+            recurrence = createRecurrence(startDate, Recurrence.NONE);
         } else if (pos > 1) {
             // Use set default for that option
             recurrence = new Recurrence(optionListDefaults[pos - 2]);
@@ -891,25 +913,37 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
             startDate = System.currentTimeMillis();  // No start date, use today
         }
         if (recurrence == null) {
-            recurrence = new Recurrence(startDate, Recurrence.NONE);  // Does not repeat if not set
+            recurrence = createRecurrence(startDate, Recurrence.NONE);  // Does not repeat if not set
+        } else {
+            checkPeriodSupported(recurrence);
         }
 
         this.recurrence = recurrence;
         this.startDate = startDate;
 
         if (optionListDefaults != null) {
-            // Adjust defaults start dates
-            for (Recurrence r : optionListDefaults) {
-                r.setStartDate(startDate);
+            // Adjust defaults start dates and time zone
+            adjustOptionListDefaults(startDate);
 
-                // Setting start date might change the text too
-                setOptionListDefaultsText();
-            }
+            // Setting start date might change the text too
+            setOptionListDefaultsText();
         }
 
         return this;
     }
 
+    /**
+     * Check that a recurrence can be shown in the period spinner.
+     * @param recurrence the recurrence to check
+     * @throws IllegalArgumentException if the recurrence is hourly or minutely
+     */
+    static void checkPeriodSupported(Recurrence recurrence) {
+        int period = recurrence.getPeriod();
+        if (period == Recurrence.HOURLY || period == Recurrence.MINUTELY) {
+            throw new IllegalArgumentException("Hourly and minutely recurrences cannot be edited by the picker");
+        }
+    }
+
     @Override
     public RecurrencePickerSettings setMaxFrequency(int max) {
         if (max == maxFrequency) {
@@ -1131,6 +1165,7 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
                 if (r == null) {
                     throw new NullPointerException("Option list default recurrences array contains a null reference");
                 }
+                checkPeriodSupported(r);
             }
         }
 
@@ -1143,9 +1178,7 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
             }
 
             optionListDefaults = defaults == null ? DEFAULT_OPTION_LIST_DEFAULTS : defaults;
-            for (Recurrence r : optionListDefaults) {
-                r.setStartDate(recurrence.getStartDate());
-            }
+            adjustOptionListDefaults(recurrence.getStartDate());
 
             LayoutInflater inflater = LayoutInflater.from(getContext());
             for (int i = 0; i < optionListDefaults.length; i++) {
@@ -1230,8 +1263,7 @@ public class RecurrencePickerView extends LinearLayout implements RecurrencePick
             startDate = bundle.getLong("startDate");
             long end = bundle.getLong("endDate", -1);
             if (end != -1) {
-                endDate = Calendar.getInstance();
-                endDate.setTimeInMillis(end);
+                endDate = recurrence.toCalendar(end);
             }
             endCount = bundle.getInt("endCount");
 
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import android.support.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Pool of {@link RecurrencePattern} instances, so that many rules repeating the same way
+ * share a single pattern and only keep their own start and end. This is useful when keeping
+ * a lot of rules in memory, for example all the events of a calendar, where most of them
+ * use a few common patterns such as the default options of the picker.
+ * <p>
+ * Patterns are only weakly referenced by the pool: one is removed once no rule uses it anymore.
+ * A pool can be used by many threads at once.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class RecurrencePool {
+
+    // Weak reference for the value too, otherwise keys would always be strongly reachable
+    private final WeakHashMap<RecurrencePattern, WeakReference<RecurrencePattern>> patterns = new WeakHashMap<>();
+
+    /**
+     * Get the pooled pattern equal to a pattern, adding it to the pool if there's none.
+     * @param pattern pattern to intern.
+     * @return the pooled pattern.
+     */
+    @NonNull
+    public synchronized RecurrencePattern intern(@NonNull RecurrencePattern pattern) {
+        WeakReference<RecurrencePattern> ref = patterns.get(pattern);
+        RecurrencePattern pooled = ref != null ? ref.get() : null;
+        if (pooled == null) {
+            patterns.put(pattern, new WeakReference<>(pattern));
+            pooled = pattern;
+        }
+        return pooled;
+    }
+
+    /**
+     * Get a rule equal to a rule but using the pooled pattern.
+     * @param rule rule to intern.
+     * @return the rule itself if it already uses the pooled pattern, otherwise a new rule.
+     */
+    @NonNull
+    public RecurrenceRule intern(@NonNull RecurrenceRule rule) {
+        RecurrencePattern pattern = intern(rule.getPattern());
+        if (pattern == rule.getPattern()) {
+            return rule;
+        }
+        return new RecurrenceRule(pattern, rule);
+    }
+
+    /**
+     * Get a rule with the same settings as a recurrence, using the pooled pattern.
+     * The recurrence keeps the returned rule as the one returned by {@link Recurrence#toRule()}.
+     * @param r recurrence to intern, later changes to it won't affect the rule.
+     * @return the rule.
+     */
+    @NonNull
+    public RecurrenceRule intern(@NonNull Recurrence r) {
+        return r.toRule(this);
+    }
+
+    /**
+     * @return the number of patterns in the pool that are still used.
+     */
+    public synchronized int size() {
+        return patterns.size();
+    }
+
+    /**
+     * Remove all patterns from the pool. Rules interned before keep their pattern.
+     */
+    public synchronized void clear() {
+        patterns.clear();
+    }
+
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.TimeZone;
+
+/**
+ * Immutable version of a {@link Recurrence}, to be shared between threads or used as a key.
+ * Two rules are equal only if all of their settings are equal, including the exact start
+ * and end times, and the hash code is computed once when the rule is created.
+ * Create one with a {@link Builder}, which applies the same rules as the setters of {@link Recurrence},
+ * or from an existing recurrence with {@link #RecurrenceRule(Recurrence)}.
+ * <p>
+ * The period, frequency, day setting and time zone are kept in a {@link RecurrencePattern},
+ * which rules can share by being interned with a {@link RecurrencePool}.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class RecurrenceRule {
+
+    private final RecurrencePattern pattern;
+    private final long startDate;
+    private final int endType;
+    private final int endCount;  // 0 if not ending by count
+    private final long endDate;  // -1 if not ending by date
+
+    private final int hash;
+
+    // Canonical form of this rule, created when first needed
+    private volatile RecurrenceRule canonical;
+    private volatile long fingerprint;
+
+    /**
+     * Create a rule with the same settings as a recurrence.
+     * @param r recurrence to copy, later changes to it won't affect the rule.
+     */
+    public RecurrenceRule(@NonNull Recurrence r) {
+        this(new RecurrencePattern(r), r.getStartDate(), r.getEndType(),
+                Math.max(0, r.getEndCount()), r.getEndDate());
+    }
+
+    /**
+     * Create a rule with the same start and end as another but with a different pattern instance.
+     * @param pattern pattern equal to the pattern of the rule.
+     * @param rule    rule to copy the start and end from.
+     */
+    RecurrenceRule(RecurrencePattern pattern, RecurrenceRule rule) {
+        this(pattern, rule.startDate, rule.endType, rule.endCount, rule.endDate);
+        canonical = rule.canonical == rule ? this : rule.canonical;
+        fingerprint = rule.fingerprint;
+    }
+
+    private RecurrenceRule(RecurrencePattern pattern, long startDate, int endType, int endCount, long endDate) {
+        this.pattern = pattern;
+        this.startDate = startDate;
+        this.endType = endType;
+        this.endCount = endCount;
+        this.endDate = endDate;
+
+        int h = pattern.hashCode();
+        h = 31 * h + (int) (startDate ^ startDate >>> 32);
+        h = 31 * h + endType;
+        h = 31 * h + endCount;
+        h = 31 * h + (int) (endDate ^ endDate >>> 32);
+        hash = h;
+    }
+
+    /**
+     * Create a mutable recurrence with the same settings as this rule.
+     * @return the new recurrence.
+     */
+    @NonNull
+    public Recurrence toRecurrence() {
+        return new Recurrence(this);
+    }
+
+    /**
+     * Get the canonical form of this rule, with the same dates.
+     * It is kept, so it can be used as a cache key cheaply.
+     * @return the canonical rule, this rule if already canonical.
+     * @see Recurrence#canonicalize()
+     */
+    @NonNull
+    public RecurrenceRule canonicalize() {
+        RecurrenceRule c = canonical;
+        if (c == null) {
+            Recurrence r = toRecurrence().canonicalize();
+            c = new RecurrenceRule(r);
+            if (c.equals(this)) c = this;
+            c.fingerprint = Recurrence.computeFingerprint(r);
+            c.canonical = c;
+            canonical = c;
+        }
+        return c;
+    }
+
+    /**
+     * Get the fingerprint of the dates of this rule.
+     * @return the fingerprint.
+     * @see Recurrence#getFingerprint()
+     */
+    public long getFingerprint() {
+        RecurrenceRule c = canonicalize();
+        return c.fingerprint;
+    }
+
+    /**
+     * Gets the starting date of the rule.
+     * @return time in millis of starting date.
+     */
+    public long getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * Gets the period of the rule.
+     * @return either {@code NONE}, {@code DAILY}, {@code WEEKLY}, {@code MONTHLY}, {@code YEARLY},
+     * {@code HOURLY} or {@code MINUTELY}.
+     */
+    @Recurrence.RecurrencePeriod
+    public int getPeriod() {
+        return pattern.getPeriod();
+    }
+
+    /**
+     * Gets the frequency of the period.
+     * @return frequency, 1 repeats every period, 2 repeats every other period, etc.
+     */
+    public int getFrequency() {
+        return pattern.getFrequency();
+    }
+
+    /**
+     * Gets the set weekly or monthly setting specifying on which day to repeat on.
+     * @return same as {@link Recurrence#getDaySetting()}.
+     */
+    public int getDaySetting() {
+        return pattern.getDaySetting();
+    }
+
+    /**
+     * Gets the end type of the rule.
+     * @return either {@code END_NEVER}, {@code END_BY_DATE}, {@code END_BY_COUNT}.
+     */
+    @Recurrence.RecurrenceEndType
+    public int getEndType() {
+        return endType;
+    }
+
+    /**
+     * Gets the number of events for which the rule happens.
+     * @return number of events, {@code -1} if repeating forever or until date.
+     */
+    public int getEndCount() {
+        return endCount != 0 ? endCount : -1;
+    }
+
+    /**
+     * Gets the end date of the rule.
+     * @return time in millis of end date, {@code -1} if forever or for a number of events.
+     */
+    public long getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * Gets the time zone in which dates are found.
+     * @return a copy of the time zone, null if the default time zone is used.
+     */
+    @Nullable
+    public TimeZone getTimeZone() {
+        return pattern.getTimeZone();
+    }
+
+    /**
+     * @return offsets of the time zone of the rule, null for the default time zone.
+     */
+    @Nullable
+    ZoneOffsets getZoneOffsets() {
+        return pattern.getZoneOffsets();
+    }
+
+    /**
+     * Check if a rule is default.
+     * @return true if rule is default.
+     * @see Recurrence#setDefault(boolean)
+     */
+    public boolean isDefault() {
+        return pattern.isDefault();
+    }
+
+    /**
+     * Gets the settings of the rule that don't depend on its start and end.
+     * @return the pattern, shared with other rules if interned by a {@link RecurrencePool}.
+     */
+    @NonNull
+    public RecurrencePattern getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (!(obj instanceof RecurrenceRule)) return false;
+
+        RecurrenceRule r = (RecurrenceRule) obj;
+        return r.hash == hash &&
+                r.startDate == startDate &&
+                r.endType == endType &&
+                r.endCount == endCount &&
+                r.endDate == endDate &&
+                r.pattern.equals(pattern);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return toRecurrence().toString();
+    }
+
+    /**
+     * Builder for a {@link RecurrenceRule}. Settings are changed with the same rules as
+     * the setters of {@link Recurrence}, see each of them for details.
+     */
+    public static final class Builder {
+
+        private final Recurrence recurrence;
+
+        /**
+         * Create a builder for a default rule that never ends and with frequency of 1.
+         * @param start  date of first event.
+         * @param period any of {@code NONE}, {@code DAILY}, {@code WEEKLY}, {@code MONTHLY}, {@code YEARLY},
+         *               {@code HOURLY} or {@code MINUTELY}.
+         * @see Recurrence#Recurrence(long, int)
+         */
+        public Builder(long start, @Recurrence.RecurrencePeriod int period) {
+            recurrence = new Recurrence(start, period);
+        }
+
+        /**
+         * Create a builder starting with the settings of a rule.
+         * @param rule rule to copy.
+         */
+        public Builder(@NonNull RecurrenceRule rule) {
+            recurrence = rule.toRecurrence();
+        }
+
+        /**
+         * Create a builder starting with the settings of a recurrence.
+         * @param r recurrence to copy, later changes to it won't affect the builder.
+         */
+        public Builder(@NonNull Recurrence r) {
+            recurrence = new Recurrence(r);
+        }
+
+        /** @see Recurrence#setStartDate(long) */
+        public Builder setStartDate(long date) {
+            recurrence.setStartDate(date);
+            return this;
+        }
+
+        /** @see Recurrence#setPeriod(int) */
+        public Builder setPeriod(@Recurrence.RecurrencePeriod int period) {
+            recurrence.setPeriod(period);
+            return this;
+        }
+
+        /** @see Recurrence#setFrequency(int) */
+        public Builder setFrequency(int freq) {
+            recurrence.setFrequency(freq);
+            return this;
+        }
+
+        /** @see Recurrence#setWeeklySetting(int) */
+        public Builder setWeeklySetting(@Recurrence.RecurrenceDaysOfWeek int days) {
+            recurrence.setWeeklySetting(days);
+            return this;
+        }
+
+        /** @see Recurrence#setMonthlySetting(int) */
+        public Builder setMonthlySetting(@Recurrence.RecurrenceMonthlySetting int option) {
+            recurrence.setMonthlySetting(option);
+            return this;
+        }
+
+        /** @see Recurrence#setEndNever() */
+        public Builder setEndNever() {
+            recurrence.setEndNever();
+            return this;
+        }
+
+        /** @see Recurrence#setEndByDate(long) */
+        public Builder setEndByDate(long date) {
+            recurrence.setEndByDate(date);
+            return this;
+        }
+
+        /** @see Recurrence#setEndByCount(int) */
+        public Builder setEndByCount(int count) {
+            recurrence.setEndByCount(count);
+            return this;
+        }
+
+        /** @see Recurrence#setTimeZone(TimeZone) */
+        public Builder setTimeZone(@Nullable TimeZone zone) {
+            recurrence.setTimeZone(zone);
+            return this;
+        }
+
+        /** @see Recurrence#setDefault(boolean) */
+        public Builder setDefault(boolean flag) {
+            recurrence.setDefault(flag);
+            return this;
+        }
+
+        /**
+         * Create the rule. The builder can still be used afterwards to create other rules.
+         * @return the new rule.
+         */
+        @NonNull
+        public RecurrenceRule build() {
+            return new RecurrenceRule(recurrence);
+        }
+
+    }
+
+}
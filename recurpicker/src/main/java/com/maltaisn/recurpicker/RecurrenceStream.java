@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Dates of many recurrences merged in chronological order, for example to show an agenda.
+ * Each recurrence is iterated only as far as dates are read from the stream: a heap keeps the
+ * next date of each recurrence, so getting the next date of the stream takes a time logarithmic
+ * in the number of recurrences. Dates on the same time are given in the order of the recurrences.
+ * <p>
+ * The stream is used like a cursor, without allocation: call {@link #next()} then get the date and
+ * the index of its recurrence with {@link #getDate()} and {@link #getIndex()}.
+ * It isn't affected by later changes to the recurrences, and shouldn't be shared between threads.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class RecurrenceStream {
+
+    private final RecurrenceIterator[] iterators;
+    private final long[] nextDates;  // Next date of each recurrence, by index
+
+    // Indices of the recurrences with dates left, as a binary heap ordered by next date
+    private final int[] heap;
+    private int size;
+
+    private int index = -1;
+    private long date = -1;
+
+    /**
+     * Create a stream of the dates of recurrences.
+     * @param recurrences recurrences to merge, identified by their index in the list.
+     * @param from        get events after this date (time in millis), set to -1 to get each
+     *                    recurrence after its start date.
+     * @see Recurrence#iterator(long)
+     */
+    public RecurrenceStream(@NonNull List<Recurrence> recurrences, long from) {
+        int count = recurrences.size();
+        iterators = new RecurrenceIterator[count];
+        nextDates = new long[count];
+        heap = new int[count];
+        for (int i = 0; i < count; i++) {
+            RecurrenceIterator it = recurrences.get(i).iterator(from);
+            if (it.hasNext()) {
+                iterators[i] = it;
+                nextDates[i] = it.nextLong();
+                heap[size++] = i;
+            }
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * @return true if there are dates left in the stream.
+     */
+    public boolean hasNext() {
+        return size > 0;
+    }
+
+    /**
+     * Move to the next date of the stream.
+     * @return false if there are no more dates.
+     */
+    public boolean next() {
+        if (size == 0) {
+            index = -1;
+            date = -1;
+            return false;
+        }
+
+        int i = heap[0];
+        index = i;
+        date = nextDates[i];
+
+        RecurrenceIterator it = iterators[i];
+        if (it.hasNext()) {
+            nextDates[i] = it.nextLong();
+        } else {
+            iterators[i] = null;
+            heap[0] = heap[--size];
+        }
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * @return time in millis of the current date, {@code -1} before the first call to
+     * {@link #next()} or after the last date.
+     */
+    public long getDate() {
+        return date;
+    }
+
+    /**
+     * @return index in the list of the recurrence of the current date, {@code -1} before the
+     * first call to {@link #next()} or after the last date.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Move a recurrence of the heap down until its children come after it.
+     * @param pos position in the heap.
+     */
+    private void siftDown(int pos) {
+        int i = heap[pos];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], i)) break;
+            heap[pos] = heap[child];
+            pos = child;
+        }
+        if (pos < size) heap[pos] = i;
+    }
+
+    /**
+     * @return true if the next date of recurrence {@code a} comes before that of {@code b}.
+     */
+    private boolean before(int a, int b) {
+        long da = nextDates[a];
+        long db = nextDates[b];
+        return da < db || da == db && a < b;
+    }
+
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Offsets of a time zone, looked up in a table of its transitions instead of asking the zone each time.
+ * The table is divided in spans of 2<sup>35</sup> millis, a bit more than a year, which are
+ * built when first needed by sampling the zone every day and searching for the exact time of
+ * each change. Times before 1900 are passed to the zone directly. Zones follow the same rules every
+ * year long before 2500, so offsets after it are looked up in the last 400 years of the table.
+ * <p>
+ * Instances are shared by all recurrences in the same zone and can be used by many threads at once.
+ */
+final class ZoneOffsets {
+
+    private static final int SPAN_SHIFT = 35;
+    private static final int FIRST_SPAN = -65;  // Span of year 1900
+    private static final int SPAN_COUNT = 552;  // Until year 2500
+
+    private static final long TABLE_START = (long) FIRST_SPAN << SPAN_SHIFT;
+    private static final long TABLE_END = (long) (FIRST_SPAN + SPAN_COUNT) << SPAN_SHIFT;
+
+    // Offsets repeat after this time from the start of the last 400 years of the table, like the calendar
+    static final long CYCLE = 146097 * CivilDates.MILLIS_PER_DAY;
+    static final long CYCLE_START = TABLE_END - CYCLE;
+
+    private static final ConcurrentHashMap<String, ZoneOffsets> CACHE = new ConcurrentHashMap<>();
+    private static volatile ZoneOffsets lastDefault;  // Offsets of the default zone when last asked for
+
+    final TimeZone zone;
+    private final int rawOffset;
+    private final Span[] spans = new Span[SPAN_COUNT];
+
+    private ZoneOffsets(TimeZone zone) {
+        this.zone = zone;
+        rawOffset = zone.getRawOffset();
+    }
+
+    /**
+     * Get the offsets of a time zone, from the cache if the zone was used before.
+     * @param zone the time zone, a copy of it is kept.
+     * @return the offsets.
+     */
+    static ZoneOffsets of(TimeZone zone) {
+        String id = zone.getID();
+        ZoneOffsets offsets = CACHE.get(id);
+        if (offsets == null || offsets.zone != zone && !offsets.zone.hasSameRules(zone)) {
+            // Not cached yet or zone with same ID has changed
+            offsets = new ZoneOffsets((TimeZone) zone.clone());
+            CACHE.put(id, offsets);
+        }
+        return offsets;
+    }
+
+    /**
+     * Get the offsets of the default time zone. The offsets found last are reused
+     * as long as the default zone has the same ID.
+     * @return the offsets.
+     */
+    static ZoneOffsets ofDefault() {
+        TimeZone zone = TimeZone.getDefault();
+        ZoneOffsets offsets = lastDefault;
+        if (offsets == null || !offsets.zone.getID().equals(zone.getID())) {
+            // Default zone was changed, rules aren't compared again otherwise
+            offsets = of(zone);
+            lastDefault = offsets;
+        }
+        return offsets;
+    }
+
+    /**
+     * Get the offset from UTC of the zone at a time, including daylight saving.
+     * @param millis time in millis.
+     * @return the offset in millis.
+     */
+    int getOffset(long millis) {
+        if (millis >= TABLE_END) {
+            millis -= ((millis - TABLE_END) / CYCLE + 1) * CYCLE;
+        }
+        long index = (millis >> SPAN_SHIFT) - FIRST_SPAN;
+        if (index < 0) {
+            return zone.getOffset(millis);
+        }
+
+        Span span = getSpan((int) index);
+        long[] transitions = span.transitions;
+        int i = 0;
+        while (i < transitions.length && millis >= transitions[i]) {
+            i++;
+        }
+        return span.offsets[i];
+    }
+
+    /**
+     * Find the next time at which the offset of the zone changes.
+     * Before the table, the zone is sampled every day like when building spans. After it, changes
+     * are found in the last 400 years of the table.
+     * @param millis time in millis.
+     * @param limit  time in millis after which changes aren't needed.
+     * @return the first time after a time with a different offset, or the limit if there's none before it.
+     */
+    long nextTransition(long millis, long limit) {
+        int offset = getOffset(millis);
+        long time = millis;
+        while (time < limit) {
+            long next;
+            if (time < TABLE_START) {
+                next = Math.min(time + CivilDates.MILLIS_PER_DAY, Math.min(TABLE_START, limit));
+                if (zone.getOffset(next) != offset) {
+                    return findTransition(zone, time, next, offset);
+                }
+
+            } else if (time < TABLE_END) {
+                int index = (int) ((time >> SPAN_SHIFT) - FIRST_SPAN);
+                for (long transition : getSpan(index).transitions) {
+                    if (transition > time) {
+                        return Math.min(transition, limit);
+                    }
+                }
+                next = Math.min((long) (index + FIRST_SPAN + 1) << SPAN_SHIFT, limit);
+
+            } else {
+                if (!zone.useDaylightTime()) {
+                    return limit;  // Same offset every year
+                }
+
+                // Find the change in the same part of the last 400 years of the table
+                long shift = ((time - TABLE_END) / CYCLE + 1) * CYCLE;
+                long transition = nextTransition(time - shift, TABLE_END);
+                if (transition < TABLE_END) {
+                    return transition < limit - shift ? transition + shift : limit;
+                }
+                next = TABLE_END < limit - shift ? TABLE_END + shift : limit;
+            }
+
+            if (next >= limit) {
+                return limit;
+            } else if (getOffset(next) != offset) {
+                return next;  // Changed at the start of a span
+            }
+            time = next;
+        }
+        return limit;
+    }
+
+    /**
+     * Get a span of the table, building it if not done yet.
+     * Spans are immutable, another thread may only build the same one again.
+     */
+    private Span getSpan(int index) {
+        Span span = spans[index];
+        if (span == null) {
+            span = new Span(zone, (long) (index + FIRST_SPAN) << SPAN_SHIFT);
+            spans[index] = span;
+        }
+        return span;
+    }
+
+    /**
+     * Search for the first time with a different offset between two times.
+     * @param low    time in millis with the offset.
+     * @param high   time in millis with a different offset.
+     * @param offset offset at the low time.
+     * @return the time in millis.
+     */
+    private static long findTransition(TimeZone zone, long low, long high, int offset) {
+        while (high - low > 1) {
+            long mid = low + (high - low) / 2;
+            if (zone.getOffset(mid) == offset) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * @return the offset from UTC of the zone without daylight saving, in millis.
+     */
+    int getRawOffset() {
+        return rawOffset;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (!(obj instanceof ZoneOffsets)) return false;
+
+        TimeZone other = ((ZoneOffsets) obj).zone;
+        return other.getID().equals(zone.getID()) && other.hasSameRules(zone);
+    }
+
+    @Override
+    public int hashCode() {
+        return zone.getID().hashCode();
+    }
+
+    /**
+     * Offset changes during a span of the table.
+     */
+    private static final class Span {
+
+        final long[] transitions;  // Times at which the offset changes
+        final int[] offsets;  // Offset at the start of the span, then after each transition
+
+        Span(TimeZone zone, long start) {
+            long end = start + (1L << SPAN_SHIFT);
+            long[] times = new long[8];
+            int[] values = new int[9];
+            int count = 0;
+            values[0] = zone.getOffset(start);
+
+            int offset = values[0];
+            for (long time = start; time < end; ) {
+                long next = Math.min(time + CivilDates.MILLIS_PER_DAY, end);
+                int nextOffset = zone.getOffset(next == end ? end - 1 : next);
+                if (nextOffset != offset) {
+                    // Find the first time with the new offset
+                    long high = findTransition(zone, time, next == end ? end - 1 : next, offset);
+                    if (count == times.length) {
+                        long[] newTimes = new long[count * 2];
+                        int[] newValues = new int[count * 2 + 1];
+                        System.arraycopy(times, 0, newTimes, 0, count);
+                        System.arraycopy(values, 0, newValues, 0, count + 1);
+                        times = newTimes;
+                        values = newValues;
+                    }
+                    times[count] = high;
+                    values[++count] = nextOffset;
+                    offset = nextOffset;
+                }
+                time = next;
+            }
+
+            transitions = new long[count];
+            offsets = new int[count + 1];
+            System.arraycopy(times, 0, transitions, 0, count);
+            System.arraycopy(values, 0, offsets, 0, count + 1);
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CivilDatesTest {
+
+    private static final ZoneOffsets UTC = ZoneOffsets.of(TimeZone.getTimeZone("UTC"));
+
+    @Test
+    public void civil_dates_same_as_calendar() {
+        GregorianCalendar cal = new GregorianCalendar(UTC.zone);
+        cal.clear();
+        cal.set(1900, Calendar.JANUARY, 1);
+        long day = CivilDates.toEpochDay(1900, Calendar.JANUARY, 1);
+        while (cal.get(Calendar.YEAR) < 2200) {
+            int year = cal.get(Calendar.YEAR);
+            int month = cal.get(Calendar.MONTH);
+            int dayOfMonth = cal.get(Calendar.DAY_OF_MONTH);
+            assertEquals(day, CivilDates.toEpochDay(year, month, dayOfMonth));
+            assertEquals(day, CivilDates.toEpochDay(cal.getTimeInMillis(), UTC));
+
+            int date = CivilDates.toDate(day);
+            assertEquals(year, CivilDates.yearOf(date));
+            assertEquals(month, CivilDates.monthOf(date));
+            assertEquals(dayOfMonth, CivilDates.dayOf(date));
+            assertEquals(cal.get(Calendar.DAY_OF_WEEK), CivilDates.dayOfWeek(day));
+            assertEquals(cal.getActualMaximum(Calendar.DAY_OF_MONTH), CivilDates.lengthOfMonth(year, month));
+
+            cal.add(Calendar.DATE, 1);
+            day++;
+        }
+    }
+
+    @Test
+    public void civil_dates_round_trip_across_cycles() {
+        // Check the table lookups on both sides of 400-year cycle boundaries, including negative years
+        long day = CivilDates.toEpochDay(-401, Calendar.JANUARY, 1);
+        long end = CivilDates.toEpochDay(801, Calendar.JANUARY, 1);
+        int prev = CivilDates.toDate(day - 1);
+        for (; day < end; day++) {
+            int date = CivilDates.toDate(day);
+            int year = CivilDates.yearOf(date);
+            int month = CivilDates.monthOf(date);
+            int dayOfMonth = CivilDates.dayOf(date);
+            assertEquals(day, CivilDates.toEpochDay(year, month, dayOfMonth));
+            if (dayOfMonth == 1) {
+                // Previous day was the last day of the previous month
+                int prevMonth = CivilDates.monthOf(prev);
+                assertEquals(month == 0 ? 11 : month - 1, prevMonth);
+                assertEquals(CivilDates.lengthOfMonth(CivilDates.yearOf(prev), prevMonth), CivilDates.dayOf(prev));
+            } else {
+                assertEquals(CivilDates.dayOf(prev) + 1, dayOfMonth);
+            }
+            prev = date;
+        }
+    }
+
+    @Test
+    public void civil_dates_dst_transitions() {
+        TimeZone tz = TimeZone.getTimeZone("America/New_York");
+        ZoneOffsets zone = ZoneOffsets.of(tz);
+        long day = CivilDates.toEpochDay(2018, Calendar.MARCH, 11);
+        int time = (2 * 60 + 30) * 60 * 1000;
+
+        // 2:30 doesn't exist on spring transition day, moved forward to 3:30
+        GregorianCalendar cal = new GregorianCalendar(tz);
+        cal.clear();
+        cal.set(2018, Calendar.MARCH, 11, 3, 30);
+        assertEquals(cal.getTimeInMillis(), CivilDates.toMillis(day, time, zone));
+
+        // 1:30 happens twice on fall transition day, first one is used
+        day = CivilDates.toEpochDay(2018, Calendar.NOVEMBER, 4);
+        time = (60 + 30) * 60 * 1000;
+        cal.clear();
+        cal.set(2018, Calendar.NOVEMBER, 4, 0, 30);
+        assertEquals(cal.getTimeInMillis() + 60 * 60 * 1000, CivilDates.toMillis(day, time, zone));
+        assertEquals(time, CivilDates.toTimeOfDay(CivilDates.toMillis(day, time, zone), zone));
+    }
+
+    @Test
+    public void civil_dates_zone_offsets() {
+        String[] ids = {"UTC", "America/New_York", "Europe/Paris", "Australia/Lord_Howe",
+                "America/Sao_Paulo", "Asia/Kolkata", "Pacific/Apia"};
+        long start = new GregorianCalendar(1965, Calendar.JANUARY, 1).getTimeInMillis();
+        long end = new GregorianCalendar(2030, Calendar.JANUARY, 1).getTimeInMillis();
+        for (String id : ids) {
+            TimeZone tz = TimeZone.getTimeZone(id);
+            ZoneOffsets zone = ZoneOffsets.of(tz);
+            assertSame(zone, ZoneOffsets.of(TimeZone.getTimeZone(id)));
+            for (long time = start; time < end; time += 7 * 60 * 60 * 1000 + 1) {
+                assertEquals(tz.getOffset(time), zone.getOffset(time));
+            }
+        }
+
+        // Offset changes exactly at the transition
+        TimeZone tz = TimeZone.getTimeZone("Europe/Paris");
+        ZoneOffsets zone = ZoneOffsets.of(tz);
+        GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        cal.clear();
+        cal.set(2018, Calendar.MARCH, 25, 1, 0);
+        long transition = cal.getTimeInMillis();
+        assertEquals(60 * 60 * 1000, zone.getOffset(transition - 1));
+        assertEquals(2 * 60 * 60 * 1000, zone.getOffset(transition));
+    }
+
+    @Test
+    public void civil_dates_default_zone_offsets() {
+        TimeZone defaultZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            ZoneOffsets zone = ZoneOffsets.ofDefault();
+            assertSame(zone, ZoneOffsets.ofDefault());
+            assertEquals("Asia/Tokyo", zone.zone.getID());
+
+            TimeZone.setDefault(TimeZone.getTimeZone("Europe/Paris"));
+            assertEquals("Europe/Paris", ZoneOffsets.ofDefault().zone.getID());
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+}
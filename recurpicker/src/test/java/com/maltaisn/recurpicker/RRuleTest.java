@@ -97,6 +97,18 @@ public class RRuleTest {
         assertEquals("DTSTART=20181229T235959;FREQ=YEARLY;INTERVAL=1;BYMONTH=12;BYMONTHDAY=29", RRuleFormat.format(r2));
     }
 
+    @Test
+    public void rrule_sub_day() {
+        long startDate = new GregorianCalendar(2018, Calendar.JANUARY, 1, 8, 30, 0).getTimeInMillis();
+
+        Recurrence r1 = new Recurrence(startDate, Recurrence.HOURLY).setFrequency(8);
+        assertEquals("DTSTART=20180101T083000;FREQ=HOURLY;INTERVAL=8", RRuleFormat.format(r1));
+
+        Recurrence r2 = new Recurrence(startDate, Recurrence.MINUTELY).setFrequency(15)
+                .setWeeklySetting(Recurrence.MONDAY | Recurrence.FRIDAY);
+        assertEquals("DTSTART=20180101T083000;FREQ=MINUTELY;INTERVAL=15;BYDAY=MO,FR", RRuleFormat.format(r2));
+    }
+
     @Test
     public void rrule_end_count() {
         long startDate = new GregorianCalendar(2018, Calendar.DECEMBER, 29, 23, 59, 59).getTimeInMillis();
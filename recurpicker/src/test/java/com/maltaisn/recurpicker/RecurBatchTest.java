@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class RecurBatchTest {
+
+    private static final long START = new GregorianCalendar(2018, Calendar.JANUARY, 1, 9, 0).getTimeInMillis();
+    private static final long FROM = new GregorianCalendar(2018, Calendar.MARCH, 1).getTimeInMillis();
+    private static final long TO = new GregorianCalendar(2018, Calendar.JUNE, 1).getTimeInMillis();
+
+    @Test
+    public void batch_same_as_sequential() throws InterruptedException {
+        final List<Recurrence> recurrences = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            switch (i % 5) {
+                case 0:
+                    recurrences.add(new Recurrence(START, Recurrence.DAILY).setFrequency(1 + i % 7));
+                    break;
+                case 1:
+                    recurrences.add(new Recurrence(START, Recurrence.WEEKLY).setEndByCount(i % 20));
+                    break;
+                case 2:
+                    recurrences.add(new Recurrence(START, Recurrence.MONTHLY));
+                    break;
+                case 3:
+                    recurrences.add(new Recurrence(START, Recurrence.HOURLY).setFrequency(1 + i % 48));
+                    break;
+                default:
+                    recurrences.add(new Recurrence(START, Recurrence.NONE));
+                    break;
+            }
+        }
+
+        final long[][] found = new long[recurrences.size()][];
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            long total = new RecurrenceBatch(executor, 4).expand(recurrences, FROM, TO, new RecurrenceBatch.Sink() {
+                @Override
+                public void accept(int index, Recurrence r, long[] dates, int count) {
+                    assertNull(found[index]);
+                    found[index] = Arrays.copyOf(dates, count);
+                }
+            });
+
+            long expectedTotal = 0;
+            for (int i = 0; i < recurrences.size(); i++) {
+                long[] expected = new long[10000];
+                int count = recurrences.get(i).findRecurrences(FROM, TO, expected);
+                expectedTotal += count;
+                assertArrayEquals(count == 0 ? null : Arrays.copyOf(expected, count), found[i]);
+            }
+            assertEquals(expectedTotal, total);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void batch_sink_failure() throws InterruptedException {
+        List<Recurrence> recurrences = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            recurrences.add(new Recurrence(START, Recurrence.DAILY));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            new RecurrenceBatch(executor).expand(recurrences, FROM, TO, new RecurrenceBatch.Sink() {
+                @Override
+                public void accept(int index, Recurrence r, long[] dates, int count) {
+                    if (index == 50) throw new IllegalStateException();
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            // Failure of the sink is thrown by expand
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void batch_split_by_cost() {
+        // One recurrence with many dates gets its own chunk
+        long[] counts = {1, 1, 1000, 1, 1, 1, 1};
+        int[] bounds = RecurrenceBatch.splitByCost(counts, 2);
+        assertArrayEquals(new int[]{0, 3, 7}, bounds);
+    }
+
+    @Test
+    public void batch_too_many_dates() throws InterruptedException {
+        // About 5 billion minutes in 10,000 years
+        List<Recurrence> recurrences = new ArrayList<>();
+        recurrences.add(new Recurrence(START, Recurrence.DAILY));
+        recurrences.add(new Recurrence(START, Recurrence.MINUTELY));
+        long to = START + 10000L * 365 * 24 * 60 * 60 * 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            new RecurrenceBatch(executor).expand(recurrences, FROM, to, new RecurrenceBatch.Sink() {
+                @Override
+                public void accept(int index, Recurrence r, long[] dates, int count) {
+                    fail();
+                }
+            });
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Dates can't be held in an array
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
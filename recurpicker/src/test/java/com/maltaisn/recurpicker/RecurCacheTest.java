@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.assertEquals;
+
+public class RecurCacheTest {
+
+    private static final long START = new GregorianCalendar(2018, Calendar.JANUARY, 1).getTimeInMillis();
+    private static final long FROM = new GregorianCalendar(2018, Calendar.MARCH, 1).getTimeInMillis();
+    private static final long TO = new GregorianCalendar(2018, Calendar.APRIL, 1).getTimeInMillis();
+
+    @Test
+    public void cache_hit_miss() {
+        RecurrenceCache cache = new RecurrenceCache(1000);
+        Recurrence r = new Recurrence(START, Recurrence.DAILY);
+
+        long[] dates1 = cache.findRecurrences(r, FROM, TO);
+        assertEquals(31, dates1.length);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // Equal recurrence shares the entry
+        long[] dates2 = cache.findRecurrences(new Recurrence(r), FROM, TO);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(31, cache.getDateCount());
+        assertEquals(dates1[30], dates2[30]);
+    }
+
+    @Test
+    public void cache_invalidated_by_setter() {
+        RecurrenceCache cache = new RecurrenceCache(1000);
+        Recurrence r = new Recurrence(START, Recurrence.DAILY);
+        assertEquals(31, cache.findRecurrences(r, FROM, TO).length);
+
+        r.setFrequency(2);
+        assertEquals(15, cache.findRecurrences(r, FROM, TO).length);
+        assertEquals(2, cache.getMissCount());
+
+        r.setEndByCount(35);
+        assertEquals(6, cache.findRecurrences(r, FROM, TO).length);
+        assertEquals(3, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void cache_eviction() {
+        RecurrenceCache cache = new RecurrenceCache(40);
+        Recurrence r1 = new Recurrence(START, Recurrence.DAILY);
+        Recurrence r2 = new Recurrence(START, Recurrence.WEEKLY);
+        cache.findRecurrences(r1, FROM, TO);  // 31 dates
+        cache.findRecurrences(r2, FROM, TO);  // 4 dates
+        assertEquals(0, cache.getEvictionCount());
+
+        cache.findRecurrences(r2, FROM, TO);
+        cache.findRecurrences(r1.setFrequency(3), FROM, TO);  // 10 dates, evicts daily
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(14, cache.getDateCount());
+
+        // Too many dates to be cached
+        cache.findRecurrences(r1.setFrequency(1), START, TO);
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    @Test
+    public void cache_shared_by_equivalent_recurrences() {
+        RecurrenceCache cache = new RecurrenceCache(1000);
+        Recurrence r1 = new Recurrence(START, Recurrence.DAILY).setFrequency(7);
+        Recurrence r2 = new Recurrence(START, Recurrence.WEEKLY);
+        cache.findRecurrences(r1, FROM, TO);
+        cache.findRecurrences(r2, FROM, TO);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    public void cache_bounded_with_empty_windows() {
+        RecurrenceCache cache = new RecurrenceCache(100);
+        Recurrence r = new Recurrence(START, Recurrence.DAILY).setEndByCount(5);
+        for (int i = 0; i < 1000; i++) {
+            // Windows after the end of the recurrence have no dates
+            assertEquals(0, cache.findRecurrences(r, TO + i, TO + i + 1000).length);
+        }
+        assertEquals(100, cache.getEntryCount());
+        assertEquals(900, cache.getEvictionCount());
+        assertEquals(0, cache.getDateCount());
+    }
+
+}
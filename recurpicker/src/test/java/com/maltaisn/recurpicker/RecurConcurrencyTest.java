@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class RecurConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 500;
+
+    @Test
+    public void recur_concurrent_queries() throws InterruptedException {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2018, Calendar.JANUARY, 31, 9, 0, 0);
+        final long start = calendar.getTimeInMillis();
+        calendar.set(2020, Calendar.JUNE, 1);
+        final long from = calendar.getTimeInMillis();
+        calendar.set(2022, Calendar.JUNE, 1);
+        final long to = calendar.getTimeInMillis();
+
+        final Recurrence[] recurrences = {
+                new Recurrence(start, Recurrence.DAILY).setFrequency(3),
+                new Recurrence(start, Recurrence.WEEKLY)
+                        .setWeeklySetting(Recurrence.MONDAY | Recurrence.WEDNESDAY | Recurrence.FRIDAY),
+                new Recurrence(start, Recurrence.MONTHLY).setEndByCount(40),
+                new Recurrence(start, Recurrence.MONTHLY).setMonthlySetting(Recurrence.SAME_DAY_OF_WEEK),
+                new Recurrence(start, Recurrence.YEARLY).setFrequency(2),
+        };
+
+        // Compute the expected results on a single thread first
+        final List<List<Long>> expected = new ArrayList<>();
+        final long[] expectedCounts = new long[recurrences.length];
+        for (int i = 0; i < recurrences.length; i++) {
+            expected.add(recurrences[i].findRecurrences(from, 50));
+            expectedCounts[i] = recurrences[i].countOccurrences(from, to);
+        }
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(THREADS);
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final AtomicInteger checks = new AtomicInteger();
+        for (int t = 0; t < THREADS; t++) {
+            final int offset = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int round = 0; round < ROUNDS && failure.get() == null; round++) {
+                            // Each thread goes through the recurrences in a different order
+                            int i = (round + offset) % recurrences.length;
+                            Recurrence r = recurrences[i];
+                            List<Long> dates = expected.get(i);
+
+                            check(dates, r.findRecurrences(from, 50), "findRecurrences", i);
+                            List<Long> iterated = new ArrayList<>();
+                            RecurrenceIterator it = r.iterator(from);
+                            while (it.hasNext() && iterated.size() < 50) {
+                                iterated.add(it.nextLong());
+                            }
+                            check(dates, iterated, "iterator", i);
+                            check(expectedCounts[i], r.countOccurrences(from, to), "countOccurrences", i);
+                            if (!dates.isEmpty()) {
+                                int index = r.indexOf(dates.get(0));
+                                check(dates.get(0), r.occurrenceAt(index), "occurrenceAt", i);
+                            }
+                            checks.incrementAndGet();
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e.toString());
+                    } finally {
+                        doneLatch.countDown();
+                    }
+                }
+
+                private void check(Object expected, Object actual, String method, int i) {
+                    if (!expected.equals(actual)) {
+                        failure.compareAndSet(null, method + " on recurrence " + i
+                                + ", expected " + expected + " but got " + actual);
+                    }
+                }
+            }).start();
+        }
+
+        startLatch.countDown();
+        doneLatch.await();
+        assertNull(failure.get(), failure.get());
+        assertEquals(THREADS * ROUNDS, checks.get());
+    }
+
+    @Test
+    public void recur_concurrent_zone_tables() throws InterruptedException {
+        // Zone and years not used by other tests, so offset tables are built by the threads at once
+        final TimeZone zone = TimeZone.getTimeZone("America/Santiago");
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.set(2100, Calendar.JANUARY, 1, 9, 0, 0);
+        final long start = calendar.getTimeInMillis();
+        final long[] bounds = new long[41];
+        for (int i = 0; i < bounds.length; i++) {
+            calendar.set(2100 + 2 * i, Calendar.JANUARY, 1);
+            bounds[i] = calendar.getTimeInMillis();
+        }
+        final Recurrence r = new Recurrence(start, Recurrence.DAILY, zone);
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(THREADS);
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final long[][][] results = new long[THREADS][bounds.length - 1][];
+        for (int t = 0; t < THREADS; t++) {
+            final int offset = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        // Each thread goes through the windows in a different order
+                        for (int k = 0; k < bounds.length - 1; k++) {
+                            int i = (k * 7 + offset * 5) % (bounds.length - 1);
+                            long[] dates = new long[800];
+                            int count = r.findRecurrences(bounds[i], bounds[i + 1], dates);
+                            results[offset][i] = Arrays.copyOf(dates, count);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e.toString());
+                    } finally {
+                        doneLatch.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        startLatch.countDown();
+        doneLatch.await();
+        assertNull(failure.get(), failure.get());
+
+        // Compare with the results of a single thread, computed afterwards
+        for (int i = 0; i < bounds.length - 1; i++) {
+            long[] dates = new long[800];
+            int count = r.findRecurrences(bounds[i], bounds[i + 1], dates);
+            long[] expected = Arrays.copyOf(dates, count);
+            for (int t = 0; t < THREADS; t++) {
+                assertTrue("window " + i + " of thread " + t, Arrays.equals(expected, results[t][i]));
+            }
+        }
+    }
+
+}
@@ -23,11 +23,19 @@ package com.maltaisn.recurpicker;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TimeZone;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 
 public class RecurDateTest {
 
@@ -280,6 +288,567 @@ public class RecurDateTest {
         assertEquals(expected, actual1);
     }
 
+    @Test
+    public void recur_date_daily_skip_end_count() {
+        List<Long> expected = Arrays.asList(
+                getDate(2017, Calendar.SEPTEMBER, 25),
+                getDate(2017, Calendar.SEPTEMBER, 26),
+                getDate(2017, Calendar.SEPTEMBER, 27)
+        );
+
+        Recurrence r = new Recurrence(getDate(2015, Calendar.JANUARY, 1), Recurrence.DAILY)
+                .setEndByCount(1000);
+
+        List<Long> actual1 = r.findRecurrences(expected.get(0), 5);
+        assertEquals(expected, actual1);
+    }
+
+    @Test
+    public void recur_date_weekly_skip() {
+        List<Long> expected = Arrays.asList(
+                getDate(2019, Calendar.JANUARY, 2),
+                getDate(2019, Calendar.JANUARY, 14),
+                getDate(2019, Calendar.JANUARY, 16)
+        );
+
+        Recurrence r = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.WEEKLY)
+                .setFrequency(2)
+                .setWeeklySetting(Recurrence.MONDAY | Recurrence.WEDNESDAY);
+
+        List<Long> actual1 = r.findRecurrences(getDate(2019, Calendar.JANUARY, 1), 3);
+        assertEquals(expected, actual1);
+    }
+
+    @Test
+    public void recur_date_monthly_same_day_31_skip_end_count() {
+        List<Long> expected = Collections.singletonList(getDate(2019, Calendar.JULY, 31));
+
+        Recurrence r = new Recurrence(getDate(2018, Calendar.JANUARY, 31), Recurrence.MONTHLY)
+                .setMonthlySetting(Recurrence.SAME_DAY_OF_MONTH)
+                .setEndByCount(10);
+
+        List<Long> actual1 = r.findRecurrences(getDate(2019, Calendar.JUNE, 1), 5);
+        assertEquals(expected, actual1);
+    }
+
+    @Test
+    public void recur_date_yearly_skip_feb_29() {
+        List<Long> expected = Arrays.asList(
+                getDate(2096, Calendar.FEBRUARY, 29),
+                getDate(2100, Calendar.FEBRUARY, 28),
+                getDate(2104, Calendar.FEBRUARY, 28)
+        );
+
+        Recurrence r = new Recurrence(getDate(2016, Calendar.FEBRUARY, 29), Recurrence.YEARLY)
+                .setFrequency(4);
+
+        List<Long> actual1 = r.findRecurrences(getDate(2095, Calendar.JANUARY, 1), 3);
+        assertEquals(expected, actual1);
+    }
+
+    @Test
+    public void recur_date_iterator() {
+        Recurrence r = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.WEEKLY)
+                .setWeeklySetting(Recurrence.SUNDAY | Recurrence.FRIDAY | Recurrence.WEDNESDAY);
+
+        List<Long> expected = r.findRecurrences(getDate(2018, Calendar.MARCH, 1), 20);
+        RecurrenceIterator iterator = r.iterator(getDate(2018, Calendar.MARCH, 1));
+        for (long date : expected) {
+            assertTrue(iterator.hasNext());
+            assertEquals(date, iterator.nextLong());
+        }
+        assertTrue(iterator.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void recur_date_iterator_end_count() {
+        Recurrence r = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.DAILY)
+                .setEndByCount(3);
+
+        RecurrenceIterator iterator = r.iterator(-1);
+        assertEquals(getDate(2018, Calendar.JANUARY, 2), iterator.nextLong());
+        assertEquals(getDate(2018, Calendar.JANUARY, 3), iterator.nextLong());
+        assertEquals(getDate(2018, Calendar.JANUARY, 4), iterator.nextLong());
+        assertFalse(iterator.hasNext());
+        iterator.nextLong();
+    }
+
+    @Test
+    public void recur_date_window_array() {
+        Recurrence r = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.DAILY);
+
+        long[] dates = new long[5];
+        int count = r.findRecurrences(getDate(2018, Calendar.JANUARY, 3),
+                getDate(2018, Calendar.JANUARY, 6), dates);
+        assertEquals(3, count);
+        assertEquals(getDate(2018, Calendar.JANUARY, 3), dates[0]);
+        assertEquals(getDate(2018, Calendar.JANUARY, 4), dates[1]);
+        assertEquals(getDate(2018, Calendar.JANUARY, 5), dates[2]);
+
+        // Array is full
+        count = r.findRecurrences(getDate(2018, Calendar.JANUARY, 3),
+                getDate(2018, Calendar.JANUARY, 30), new long[2]);
+        assertEquals(2, count);
+    }
+
+    @Test
+    public void recur_date_window_array_end_count() {
+        Recurrence r = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.DAILY)
+                .setFrequency(3)
+                .setEndByCount(10);
+
+        long[] dates = new long[20];
+        int count = r.findRecurrences(getDate(2018, Calendar.JANUARY, 10),
+                getDate(2018, Calendar.MARCH, 1), dates);
+        assertEquals(8, count);
+        assertEquals(getDate(2018, Calendar.JANUARY, 10), dates[0]);
+        assertEquals(getDate(2018, Calendar.JANUARY, 31), dates[7]);
+    }
+
+    @Test
+    public void recur_date_window_consumer() {
+        List<Long> expected = Arrays.asList(
+                getDate(2018, Calendar.MARCH, 31),
+                getDate(2018, Calendar.MAY, 31),
+                getDate(2018, Calendar.JULY, 31)
+        );
+
+        Recurrence r = new Recurrence(getDate(2018, Calendar.JANUARY, 31), Recurrence.MONTHLY)
+                .setEndByCount(3);
+
+        final List<Long> actual = new ArrayList<>();
+        int count = r.findRecurrences(getDate(2018, Calendar.JANUARY, 1), getDate(2019, Calendar.JANUARY, 1),
+                new Recurrence.DateConsumer() {
+                    @Override
+                    public void accept(long date) {
+                        actual.add(date);
+                    }
+                });
+        assertEquals(3, count);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void recur_date_count() {
+        Recurrence r1 = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.DAILY);
+        assertEquals(364, r1.countOccurrences(getDate(2018, Calendar.JANUARY, 1), getDate(2019, Calendar.JANUARY, 1)));
+
+        Recurrence r2 = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.WEEKLY)
+                .setWeeklySetting(Recurrence.MONDAY | Recurrence.WEDNESDAY | Recurrence.FRIDAY)
+                .setEndByCount(100);
+        assertEquals(100, r2.countOccurrences(getDate(2018, Calendar.JANUARY, 1), getDate(2030, Calendar.JANUARY, 1)));
+
+        Recurrence r3 = new Recurrence(getDate(2018, Calendar.JANUARY, 31), Recurrence.MONTHLY);
+        assertEquals(6, r3.countOccurrences(getDate(2018, Calendar.JANUARY, 1), getDate(2019, Calendar.JANUARY, 1)));
+
+        Recurrence r4 = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.YEARLY)
+                .setFrequency(3);
+        assertEquals(7, r4.countOccurrences(getDate(2018, Calendar.JANUARY, 1), getDate(2040, Calendar.JANUARY, 1)));
+    }
+
+    @Test(timeout = 5000)
+    public void recur_date_count_unbounded() {
+        long start = getDate(2018, Calendar.JANUARY, 31);
+        long from = getDate(2020, Calendar.JANUARY, 1);
+        Recurrence[] recurrences = {
+                new Recurrence(start, Recurrence.DAILY).setFrequency(3),
+                new Recurrence(start, Recurrence.WEEKLY)
+                        .setWeeklySetting(Recurrence.MONDAY | Recurrence.WEDNESDAY | Recurrence.FRIDAY),
+                new Recurrence(start, Recurrence.MONTHLY),
+                new Recurrence(start, Recurrence.MONTHLY).setMonthlySetting(Recurrence.SAME_DAY_OF_WEEK),
+                new Recurrence(start, Recurrence.MONTHLY).setMonthlySetting(Recurrence.LAST_DAY_OF_MONTH),
+                new Recurrence(start, Recurrence.YEARLY),
+        };
+        long middle = getDate(3000, Calendar.JANUARY, 1);
+        for (Recurrence r : recurrences) {
+            // Counted arithmetically up to the last date that can be represented
+            long count = r.countOccurrences(from, Long.MAX_VALUE);
+            assertTrue(r.toString(), count > 0);
+            assertEquals(r.toString(), count, r.countOccurrences(from, middle)
+                    + r.countOccurrences(middle, Long.MAX_VALUE));
+            assertEquals(r.toString(), count + r.countOccurrences(Long.MIN_VALUE, from),
+                    r.countOccurrences(Long.MIN_VALUE, Long.MAX_VALUE));
+
+            r.setEndByCount(1000);
+            assertEquals(r.toString(), 1000, r.countOccurrences(Long.MIN_VALUE, Long.MAX_VALUE));
+        }
+
+        // One date per day, up to the last day
+        Recurrence daily = new Recurrence(start, Recurrence.DAILY);
+        long startDay = CivilDates.toEpochDay(start, ZoneOffsets.ofDefault());
+        assertEquals(CivilDates.MAX_EPOCH_DAY - startDay, daily.countOccurrences(0, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void recur_date_next_recurrences_sweep() {
+        Recurrence r = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.WEEKLY)
+                .setEndByDate(getDate(2018, Calendar.MARCH, 1));
+        long[] from = {
+                getDate(2017, Calendar.DECEMBER, 1),
+                getDate(2018, Calendar.JANUARY, 8),
+                getDate(2018, Calendar.JANUARY, 9),
+                getDate(2018, Calendar.JANUARY, 9),
+                getDate(2018, Calendar.MARCH, 1),
+        };
+        long[] dates = new long[from.length];
+        r.findNextRecurrences(from, dates);
+        assertEquals(getDate(2018, Calendar.JANUARY, 8), dates[0]);
+        assertEquals(getDate(2018, Calendar.JANUARY, 8), dates[1]);
+        assertEquals(getDate(2018, Calendar.JANUARY, 15), dates[2]);
+        assertEquals(getDate(2018, Calendar.JANUARY, 15), dates[3]);
+        assertEquals(-1, dates[4]);
+    }
+
+    @Test
+    public void recur_date_count_sweep() {
+        Recurrence r = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.DAILY)
+                .setEndByCount(40);
+        long[] bounds = {
+                getDate(2018, Calendar.JANUARY, 1),
+                getDate(2018, Calendar.JANUARY, 8),
+                getDate(2018, Calendar.FEBRUARY, 1),
+                getDate(2018, Calendar.MARCH, 1),
+        };
+        long[] counts = new long[3];
+        r.countOccurrences(bounds, counts);
+        assertEquals(6, counts[0]);
+        assertEquals(24, counts[1]);
+        assertEquals(10, counts[2]);
+    }
+
+    @Test
+    public void recur_date_occurrence_at() {
+        Recurrence r = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.WEEKLY)
+                .setWeeklySetting(Recurrence.SUNDAY | Recurrence.FRIDAY | Recurrence.WEDNESDAY);
+        List<Long> dates = r.findRecurrences(-1, 500);
+        for (int i = 0; i < dates.size(); i += 7) {
+            assertEquals((long) dates.get(i), r.occurrenceAt(i));
+            assertEquals(i, r.indexOf(dates.get(i)));
+        }
+        assertEquals(-1, r.indexOf(getDate(2018, Calendar.JANUARY, 2)));
+
+        Recurrence r2 = new Recurrence(getDate(2018, Calendar.JANUARY, 31), Recurrence.MONTHLY);
+        assertEquals(getDate(2019, Calendar.JANUARY, 31), r2.occurrenceAt(6));
+        assertEquals(6, r2.indexOf(getDate(2019, Calendar.JANUARY, 31)));
+    }
+
+    @Test
+    public void recur_date_last_occurrence() {
+        Recurrence r1 = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.WEEKLY)
+                .setWeeklySetting(Recurrence.MONDAY | Recurrence.FRIDAY)
+                .setEndByCount(40);
+        assertEquals(getDate(2018, Calendar.MAY, 21), r1.getLastOccurrence());
+        assertEquals(-1, r1.occurrenceAt(40));
+
+        Recurrence r2 = new Recurrence(getDate(2018, Calendar.JANUARY, 31), Recurrence.MONTHLY)
+                .setEndByDate(getDate(2018, Calendar.SEPTEMBER, 30));
+        assertEquals(getDate(2018, Calendar.AUGUST, 31), r2.getLastOccurrence());
+
+        Recurrence r3 = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.DAILY);
+        assertEquals(-1, r3.getLastOccurrence());
+    }
+
+    @Test
+    public void recur_date_previous_occurrence() {
+        Recurrence r1 = new Recurrence(getDate(2018, Calendar.JANUARY, 31), Recurrence.MONTHLY);
+        assertEquals(getDate(2018, Calendar.MAY, 31), r1.previousOccurrence(getDate(2018, Calendar.JULY, 15)));
+        assertEquals(getDate(2018, Calendar.MARCH, 31), r1.previousOccurrence(getDate(2018, Calendar.MAY, 31)));
+        assertEquals(-1, r1.previousOccurrence(getDate(2018, Calendar.MARCH, 1)));
+
+        Recurrence r2 = new Recurrence(getDate(2016, Calendar.FEBRUARY, 29), Recurrence.YEARLY)
+                .setEndByCount(3);
+        assertEquals(getDate(2019, Calendar.FEBRUARY, 28), r2.previousOccurrence(getDate(2030, Calendar.JANUARY, 1)));
+    }
+
+    @Test(timeout = 5000)
+    public void recur_date_previous_occurrence_unbounded() {
+        long start = getDate(2018, Calendar.JANUARY, 1);
+        ZoneOffsets zone = ZoneOffsets.ofDefault();
+        Recurrence daily = new Recurrence(start, Recurrence.DAILY);
+        assertEquals(CivilDates.toMillis(CivilDates.MAX_EPOCH_DAY, CivilDates.toTimeOfDay(start, zone), zone),
+                daily.previousOccurrence(Long.MAX_VALUE));
+
+        Recurrence[] recurrences = {
+                daily,
+                new Recurrence(start, Recurrence.WEEKLY).setWeeklySetting(Recurrence.TUESDAY | Recurrence.FRIDAY),
+                new Recurrence(start, Recurrence.MONTHLY).setMonthlySetting(Recurrence.LAST_DAY_OF_MONTH),
+                new Recurrence(start, Recurrence.YEARLY),
+        };
+        for (Recurrence r : recurrences) {
+            long last = r.previousOccurrence(Long.MAX_VALUE);
+            assertTrue(r.toString(), last > start);
+            assertTrue(r.toString(), r.occursOn(last));
+            assertEquals(r.toString(), last, r.descendingIterator(Long.MAX_VALUE).nextLong());
+            assertEquals(r.toString(), -1, r.previousOccurrence(Long.MIN_VALUE));
+
+            r.setEndByDate(getDate(2400, Calendar.MARCH, 15));
+            assertEquals(r.toString(), r.getLastOccurrence(), r.previousOccurrence(Long.MAX_VALUE));
+            assertEquals(r.toString(), -1, r.previousOccurrence(Long.MIN_VALUE));
+        }
+    }
+
+    @Test
+    public void recur_date_descending_iterator() {
+        Recurrence r = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.WEEKLY)
+                .setWeeklySetting(Recurrence.TUESDAY | Recurrence.THURSDAY);
+        RecurrenceIterator it = r.descendingIterator(getDate(2018, Calendar.JANUARY, 12));
+        assertEquals(getDate(2018, Calendar.JANUARY, 11), it.nextLong());
+        assertEquals(getDate(2018, Calendar.JANUARY, 9), it.nextLong());
+        assertEquals(getDate(2018, Calendar.JANUARY, 4), it.nextLong());
+        assertEquals(getDate(2018, Calendar.JANUARY, 2), it.nextLong());
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void recur_date_update_end() {
+        Recurrence old = new Recurrence(getDate(2018, Calendar.JANUARY, 31), Recurrence.MONTHLY)
+                .setEndByCount(3);
+        List<Long> dates = old.findRecurrences(-1, 5);
+        assertEquals(3, dates.size());
+
+        Recurrence r = new Recurrence(old).setEndByDate(getDate(2018, Calendar.OCTOBER, 1));
+        List<Long> expected = Arrays.asList(
+                getDate(2018, Calendar.MARCH, 31),
+                getDate(2018, Calendar.MAY, 31),
+                getDate(2018, Calendar.JULY, 31),
+                getDate(2018, Calendar.AUGUST, 31)
+        );
+        assertEquals(expected, r.updateRecurrences(old, dates, -1, 5));
+
+        r.setEndByCount(2);
+        assertEquals(expected.subList(0, 2), r.updateRecurrences(old, dates, -1, 5));
+
+        r.setEndNever().setFrequency(2);
+        assertEquals(r.findRecurrences(-1, 5), r.updateRecurrences(old, dates, -1, 5));
+    }
+
+    @Test
+    public void recur_date_occurs_on() {
+        Recurrence r1 = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.WEEKLY)
+                .setFrequency(2)
+                .setWeeklySetting(Recurrence.MONDAY | Recurrence.THURSDAY);
+        assertFalse(r1.occursOn(getDate(2018, Calendar.JANUARY, 1)));
+        assertTrue(r1.occursOn(getDate(2018, Calendar.JANUARY, 4)));
+        assertFalse(r1.occursOn(getDate(2018, Calendar.JANUARY, 8)));
+        assertTrue(r1.occursOn(getDate(2018, Calendar.JANUARY, 15)));
+        assertTrue(r1.occursOn(getDate(2030, Calendar.JANUARY, 17)));
+        assertFalse(r1.occursOn(getDate(2030, Calendar.JANUARY, 10)));
+
+        Recurrence r2 = new Recurrence(getDate(2018, Calendar.JANUARY, 31), Recurrence.MONTHLY)
+                .setEndByCount(4);
+        assertFalse(r2.occursOn(getDate(2018, Calendar.FEBRUARY, 28)));
+        assertTrue(r2.occursOn(getDate(2018, Calendar.MARCH, 31)));
+        assertTrue(r2.occursOn(getDate(2018, Calendar.AUGUST, 31)));
+        assertFalse(r2.occursOn(getDate(2018, Calendar.OCTOBER, 31)));
+
+        Recurrence r3 = new Recurrence(getDate(2016, Calendar.FEBRUARY, 29), Recurrence.YEARLY)
+                .setFrequency(4);
+        assertTrue(r3.occursOn(getDate(2096, Calendar.FEBRUARY, 29)));
+        assertFalse(r3.occursOn(getDate(2100, Calendar.FEBRUARY, 29)));
+        assertTrue(r3.occursOn(getDate(2100, Calendar.FEBRUARY, 28)));
+        assertFalse(r3.occursOn(getDate(2104, Calendar.FEBRUARY, 29)));
+    }
+
+    @Test
+    public void recur_date_budget() {
+        Recurrence r = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.DAILY);
+
+        RecurrenceBudget budget1 = new RecurrenceBudget(10, Long.MAX_VALUE);
+        List<Long> dates1 = r.findRecurrences(-1, 100, budget1);
+        assertEquals(10, dates1.size());
+        assertTrue(budget1.isExhausted());
+
+        RecurrenceBudget budget2 = new RecurrenceBudget(10, Long.MAX_VALUE);
+        assertEquals(r.findRecurrences(-1, 5), r.findRecurrences(-1, 5, budget2));
+        assertFalse(budget2.isExhausted());
+    }
+
+    @Test
+    public void recur_date_has_occurrences() {
+        Recurrence r1 = new Recurrence(getDate(2018, Calendar.JANUARY, 1), Recurrence.MONTHLY)
+                .setEndByDate(getDate(2018, Calendar.JANUARY, 20));
+        assertFalse(r1.hasOccurrences());
+        r1.setEndByDate(getDate(2018, Calendar.FEBRUARY, 1));
+        assertTrue(r1.hasOccurrences());
+
+        // Settings that can't be set with setters, but can be found in a byte array
+        ByteBuffer bb = ByteBuffer.wrap(new Recurrence(getDate(2018, Calendar.JANUARY, 1),
+                Recurrence.WEEKLY).toByteArray());
+        bb.putInt(21, 0);  // No days of week
+        Recurrence r2 = new Recurrence(bb.array(), 0);
+        assertFalse(r2.hasOccurrences());
+        assertTrue(r2.findRecurrences(-1, 10).isEmpty());
+        assertEquals(0, r2.countOccurrences(0, Long.MAX_VALUE));
+
+        bb.putInt(21, Recurrence.MONDAY);
+        bb.putInt(17, 0);  // Frequency of 0
+        Recurrence r3 = new Recurrence(bb.array(), 0);
+        assertFalse(r3.hasOccurrences());
+        assertFalse(r3.iterator(-1).hasNext());
+    }
+
+    @Test
+    public void recur_date_page() {
+        Recurrence r = new Recurrence(getDate(2018, Calendar.JANUARY, 31), Recurrence.MONTHLY)
+                .setEndByCount(10);
+        List<Long> all = r.findRecurrences(-1, 20);
+
+        List<Long> dates = new ArrayList<>();
+        long token = RecurrencePage.FIRST_PAGE;
+        RecurrencePage page;
+        do {
+            page = r.findRecurrencePage(token, 3);
+            dates.addAll(page.getDates());
+            token = page.getNextToken();
+        } while (!page.isLast());
+        assertEquals(all, dates);
+        assertTrue(r.findRecurrencePage(token, 3).getDates().isEmpty());
+
+        // Token of equal recurrence can be used
+        long token2 = r.findRecurrencePage(RecurrencePage.FIRST_PAGE, 4).getNextToken();
+        assertEquals(all.subList(4, 7), new Recurrence(r).findRecurrencePage(token2, 3).getDates());
+
+        // Token can't be used once recurrence is changed
+        r.setFrequency(2);
+        try {
+            r.findRecurrencePage(token2, 3);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void recur_date_sub_day() {
+        long hour = 3600000L;
+        long start = getDate(2018, Calendar.JANUARY, 1);
+        Recurrence r = new Recurrence(start, Recurrence.HOURLY)
+                .setFrequency(8)
+                .setEndByCount(5);
+        assertEquals(Arrays.asList(start + 8 * hour, start + 16 * hour, start + 24 * hour,
+                start + 32 * hour, start + 40 * hour), r.findRecurrences(-1, 10));
+        assertEquals(Arrays.asList(start + 24 * hour, start + 32 * hour), r.findRecurrences(start + 17 * hour, 2));
+        assertEquals(2, r.countOccurrences(start + 16 * hour, start + 32 * hour));
+
+        // Every 30 minutes on mondays only, from monday 23:50
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(2018, Calendar.JANUARY, 1, 23, 50);
+        long monday = cal.getTimeInMillis();
+        cal.set(2018, Calendar.JANUARY, 8, 0, 20);
+        long nextMonday = cal.getTimeInMillis();
+        r = new Recurrence(monday, Recurrence.MINUTELY)
+                .setFrequency(30)
+                .setWeeklySetting(Recurrence.MONDAY);
+        assertEquals(Arrays.asList(nextMonday, nextMonday + hour / 2), r.findRecurrences(-1, 2));
+        assertEquals(48, r.countOccurrences(monday, nextMonday + 24 * hour));
+        assertTrue(r.occursOn(nextMonday));
+        assertFalse(r.occursOn(nextMonday + 24 * hour));
+    }
+
+    @Test(timeout = 5000)
+    public void recur_date_sub_day_unbounded() {
+        long start = getDate(2018, Calendar.JANUARY, 1);
+        for (int period : new int[]{Recurrence.HOURLY, Recurrence.MINUTELY}) {
+            Recurrence r = new Recurrence(start, period).setFrequency(5);
+            assertEquals(20, r.findRecurrences(0, Long.MAX_VALUE, new long[20]));
+
+            r.setEndByCount(10);
+            long[] dates = new long[20];
+            assertEquals(10, r.findRecurrences(0, Long.MAX_VALUE, dates));
+            List<Long> expected = r.findRecurrences(-1, 10);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals((long) expected.get(i), dates[i]);
+            }
+            assertEquals(10, r.countOccurrences(0, Long.MAX_VALUE));
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void recur_date_sub_day_days_of_week_far() {
+        TimeZone zone = TimeZone.getTimeZone("America/New_York");
+        Calendar cal = Calendar.getInstance(zone);
+        cal.clear();
+        cal.set(1970, Calendar.JANUARY, 5, 9, 30);
+        long start = cal.getTimeInMillis();
+        Recurrence r = new Recurrence(start, Recurrence.HOURLY, zone)
+                .setFrequency(5)
+                .setWeeklySetting(Recurrence.MONDAY | Recurrence.FRIDAY);
+
+        // Whole weeks are counted without walking every day, across daylight saving changes
+        int expected = 0;
+        cal.set(2018, Calendar.JANUARY, 1, 0, 0);
+        long from = cal.getTimeInMillis();
+        cal.add(Calendar.YEAR, 1);
+        long to = cal.getTimeInMillis();
+        for (cal.setTimeInMillis(start + 5 * 3600000L); cal.getTimeInMillis() < to; cal.add(Calendar.HOUR, 5)) {
+            int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK);
+            if (cal.getTimeInMillis() >= from && (dayOfWeek == Calendar.MONDAY || dayOfWeek == Calendar.FRIDAY)) {
+                expected++;
+            }
+        }
+        assertEquals(expected, r.countOccurrences(from, to));
+
+        long count = r.countOccurrences(0, Long.MAX_VALUE);
+        assertEquals(count, r.countOccurrences(0, from) + r.countOccurrences(from, Long.MAX_VALUE));
+        long last = r.previousOccurrence(Long.MAX_VALUE);
+        assertTrue(r.occursOn(last));
+        assertEquals(1, r.countOccurrences(last, Long.MAX_VALUE));
+        assertEquals(count, r.countOccurrences(0, last) + 1);
+    }
+
+    @Test
+    public void recur_date_time_zone() {
+        TimeZone zone = TimeZone.getTimeZone("America/New_York");
+        Calendar cal = Calendar.getInstance(zone);
+        cal.clear();
+        cal.set(2018, Calendar.MARCH, 9, 9, 0);
+        Recurrence r = new Recurrence(cal.getTimeInMillis(), Recurrence.DAILY, zone);
+
+        // Dates stay at 9:00 in New York across the DST transition, whatever the default time zone
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            cal.add(Calendar.DATE, 1);
+            expected.add(cal.getTimeInMillis());
+        }
+        assertEquals(expected, r.findRecurrences(-1, 3));
+        assertEquals(expected.get(1) - expected.get(0), 23 * 60 * 60 * 1000);
+        assertEquals(zone.getID(), r.getTimeZone().getID());
+        assertEquals(zone.getID(), new Recurrence(r).getTimeZone().getID());
+        assertEquals(zone.getID(), r.toRule().toRecurrence().getTimeZone().getID());
+
+        // Tokyo has no DST, so dates keep the same time in UTC
+        r.setTimeZone(TimeZone.getTimeZone("Asia/Tokyo"));
+        assertEquals(expected.get(1) + 60 * 60 * 1000, (long) r.findRecurrences(-1, 2).get(1));
+    }
+
+    @Test
+    public void recur_date_in_zones() {
+        TimeZone[] zones = {TimeZone.getTimeZone("America/New_York"), TimeZone.getTimeZone("Asia/Tokyo")};
+        Calendar cal = Calendar.getInstance(zones[0]);
+        cal.clear();
+        cal.set(2018, Calendar.MARCH, 1, 9, 0);
+        Recurrence r = new Recurrence(cal.getTimeInMillis(), Recurrence.WEEKLY, zones[0])
+                .setWeeklySetting(Recurrence.MONDAY | Recurrence.FRIDAY);
+        long from = cal.getTimeInMillis();
+        cal.add(Calendar.DATE, 28);
+        long to = cal.getTimeInMillis();
+
+        // Events are at 9:00 in each zone, on the same local days
+        long[][] dates = r.findRecurrencesInZones(from, to, zones);
+        assertEquals(2, dates.length);
+        for (int i = 0; i < zones.length; i++) {
+            assertEquals(8, dates[i].length);
+            Calendar local = Calendar.getInstance(zones[i]);
+            for (long date : dates[i]) {
+                local.setTimeInMillis(date);
+                assertEquals(9, local.get(Calendar.HOUR_OF_DAY));
+                assertTrue(r.isRepeatedOnDaysOfWeek(1 << local.get(Calendar.DAY_OF_WEEK)));
+            }
+        }
+        assertEquals(Arrays.asList(dates[0][0], dates[0][1]), r.findRecurrences(from, 2));
+    }
+
     private static long getDate(int year, int month, int day) {
         calendar.set(year, month, day);
         return calendar.getTimeInMillis() / 1000 * 1000;  // Floor to seconds
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import org.junit.Test;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.GregorianCalendar;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class RecurMemoryTest {
+
+    @Test
+    public void recurrence_has_no_calendars() throws NoSuchFieldException {
+        // Start and end dates used to be calendars, each instance keeping its own
+        for (Field field : Recurrence.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) continue;
+            Class<?> type = field.getType();
+            assertFalse(field.getName(), Calendar.class.isAssignableFrom(type));
+            assertFalse(field.getName(), type == Object.class);
+
+            // Only primitives, the time zone shared between recurrences,
+            // and the rule cached by this instance, counted in the footprint below
+            assertTrue(field.getName(), type.isPrimitive()
+                    || type == ZoneOffsets.class || type == RecurrenceRule.class);
+        }
+        assertEquals(long.class, Recurrence.class.getDeclaredField("startDate").getType());
+        assertEquals(long.class, Recurrence.class.getDeclaredField("endDate").getType());
+    }
+
+    @Test
+    public void recurrence_footprint() throws IllegalAccessException {
+        // Every 7 days until a date, so the cached rule also keeps a different canonical rule
+        Recurrence r = new Recurrence(new GregorianCalendar(2018, Calendar.JANUARY, 1).getTimeInMillis(),
+                Recurrence.DAILY).setFrequency(7)
+                .setEndByDate(new GregorianCalendar(2018, Calendar.MARCH, 1).getTimeInMillis());
+        long bare = getRetainedSize(r);
+        assertTrue("Recurrence takes " + bare + " bytes", bare <= 64);
+
+        // With the rule, its pattern, and the canonical rule and pattern it keeps.
+        // A single calendar used to take more than that with its field arrays.
+        assertNotSame(r.toRule(), r.toRule().canonicalize());
+        long size = getRetainedSize(r);
+        assertTrue("Recurrence and its rule take " + size + " bytes", size <= 256);
+    }
+
+    /**
+     * Estimate the size of the objects reachable from an object, with 12 bytes object headers,
+     * 4 bytes references and 8 bytes alignment. Time zone offsets are shared between recurrences
+     * and aren't counted. Fails if an object of another type is reachable.
+     */
+    private static long getRetainedSize(Object root) throws IllegalAccessException {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        Deque<Object> queue = new ArrayDeque<>();
+        queue.add(root);
+        long size = 0;
+        while (!queue.isEmpty()) {
+            Object obj = queue.remove();
+            if (obj instanceof ZoneOffsets || !visited.add(obj)) continue;
+
+            Class<?> cls = obj.getClass();
+            if (cls.isArray()) {
+                assertTrue(cls.getName(), cls.getComponentType().isPrimitive());
+                size += align(16 + Array.getLength(obj) * (long) getFieldSize(cls.getComponentType()));
+                continue;
+            }
+            assertTrue(cls.getName(), cls.getPackage() == Recurrence.class.getPackage());
+
+            long shallow = 12;
+            for (Class<?> c = cls; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) continue;
+                    shallow += getFieldSize(field.getType());
+                    if (!field.getType().isPrimitive()) {
+                        field.setAccessible(true);
+                        Object value = field.get(obj);
+                        if (value != null) queue.add(value);
+                    }
+                }
+            }
+            size += align(shallow);
+        }
+        return size;
+    }
+
+    private static int getFieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == boolean.class || type == byte.class) {
+            return 1;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else {
+            return 4;
+        }
+    }
+
+    private static long align(long size) {
+        return (size + 7) / 8 * 8;
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class RecurRuleTest {
+
+    private static final long START = new GregorianCalendar(2018, Calendar.JANUARY, 31).getTimeInMillis();
+
+    @Test
+    public void rule_builder_weekly_all_days() {
+        RecurrenceRule rule = new RecurrenceRule.Builder(START, Recurrence.WEEKLY)
+                .setWeeklySetting(Recurrence.EVERY_DAY_OF_WEEK)
+                .build();
+        assertEquals(Recurrence.DAILY, rule.getPeriod());
+        assertEquals(0, rule.getDaySetting());
+    }
+
+    @Test
+    public void rule_builder_end_count_zero() {
+        RecurrenceRule rule = new RecurrenceRule.Builder(START, Recurrence.MONTHLY)
+                .setEndByCount(0)
+                .build();
+        assertEquals(Recurrence.NONE, rule.getPeriod());
+        assertEquals(Recurrence.END_NEVER, rule.getEndType());
+    }
+
+    @Test
+    public void rule_builder_monthly_last_day_wrong_start() {
+        long start = new GregorianCalendar(2018, Calendar.JANUARY, 1).getTimeInMillis();
+        RecurrenceRule rule = new RecurrenceRule.Builder(start, Recurrence.MONTHLY)
+                .setMonthlySetting(Recurrence.LAST_DAY_OF_MONTH)
+                .build();
+        assertEquals(Recurrence.SAME_DAY_OF_MONTH, rule.getDaySetting());
+    }
+
+    @Test
+    public void rule_recurrence_round_trip() {
+        long end = new GregorianCalendar(2019, Calendar.MARCH, 1).getTimeInMillis();
+        Recurrence r = new Recurrence(START, Recurrence.WEEKLY)
+                .setFrequency(2)
+                .setWeeklySetting(Recurrence.MONDAY | Recurrence.THURSDAY)
+                .setEndByDate(end);
+        RecurrenceRule rule = new RecurrenceRule(r);
+        assertEquals(START, rule.getStartDate());
+        assertEquals(end, rule.getEndDate());
+        assertEquals(-1, rule.getEndCount());
+
+        Recurrence copy = rule.toRecurrence();
+        assertEquals(r, copy);
+        assertEquals(r.getEndDate(), copy.getEndDate());
+        assertEquals(rule, new RecurrenceRule(copy));
+    }
+
+    @Test
+    public void rule_not_affected_by_changes() {
+        Recurrence r = new Recurrence(START, Recurrence.DAILY).setEndByCount(5);
+        RecurrenceRule rule = new RecurrenceRule(r);
+        r.setFrequency(3);
+        assertEquals(1, rule.getFrequency());
+        assertEquals(5, rule.getEndCount());
+
+        RecurrenceRule.Builder builder = new RecurrenceRule.Builder(rule);
+        RecurrenceRule rule2 = builder.setFrequency(2).build();
+        assertEquals(1, rule.getFrequency());
+        assertEquals(2, rule2.getFrequency());
+        assertNotSame(builder.build(), builder.build());
+    }
+
+    @Test
+    public void rule_equals_hash() {
+        RecurrenceRule rule1 = new RecurrenceRule.Builder(START, Recurrence.YEARLY).setEndByCount(3).build();
+        RecurrenceRule rule2 = new RecurrenceRule.Builder(START, Recurrence.YEARLY).setEndByCount(3).build();
+        RecurrenceRule rule3 = new RecurrenceRule.Builder(START + 1, Recurrence.YEARLY).setEndByCount(3).build();
+        assertEquals(rule1, rule2);
+        assertEquals(rule1.hashCode(), rule2.hashCode());
+        assertFalse(rule1.equals(rule3));
+    }
+
+    @Test
+    public void rule_pool_shares_patterns() {
+        RecurrencePool pool = new RecurrencePool();
+        long start2 = new GregorianCalendar(2018, Calendar.MARCH, 7).getTimeInMillis();
+        RecurrenceRule rule1 = pool.intern(new Recurrence(START, Recurrence.WEEKLY).setEndByCount(10));
+        RecurrenceRule rule2 = pool.intern(new Recurrence(start2, Recurrence.WEEKLY).setEndByCount(5));
+        RecurrenceRule rule3 = pool.intern(new Recurrence(START, Recurrence.MONTHLY));
+        assertSame(rule1.getPattern(), rule2.getPattern());
+        assertNotSame(rule1.getPattern(), rule3.getPattern());
+        assertEquals(2, pool.size());
+
+        // Interned rule is equal to the original and keeps its own start and end
+        RecurrenceRule rule4 = new Recurrence(start2, Recurrence.WEEKLY).setEndByCount(5).toRule();
+        RecurrenceRule interned = pool.intern(rule4);
+        assertNotSame(rule4, interned);
+        assertSame(interned, pool.intern(interned));
+        assertEquals(rule4, interned);
+        assertEquals(rule4.hashCode(), interned.hashCode());
+        assertEquals(rule4.getFingerprint(), interned.getFingerprint());
+        assertEquals(start2, interned.getStartDate());
+        assertEquals(5, interned.getEndCount());
+
+        // Interned recurrence keeps the pooled rule instead of its own copy of the pattern
+        Recurrence r = new Recurrence(start2, Recurrence.WEEKLY).setEndByCount(5);
+        r.toRule();
+        RecurrenceRule pooled = pool.intern(r);
+        assertSame(pooled, r.toRule());
+        assertSame(rule2.getPattern(), r.toRule().getPattern());
+        r.setFrequency(2);
+        assertNotSame(pooled, r.toRule());
+    }
+
+}
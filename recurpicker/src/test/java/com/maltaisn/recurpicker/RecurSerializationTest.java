@@ -65,6 +65,19 @@ public class RecurSerializationTest {
         assertRecurrenceEquals(r1, r2);
     }
 
+    @Test
+    public void recur_serialization_sub_day() {
+        Recurrence r1 = new Recurrence(System.currentTimeMillis(), Recurrence.HOURLY)
+                .setFrequency(6)
+                .setWeeklySetting(Recurrence.MONDAY | Recurrence.TUESDAY)
+                .setEndByCount(20);
+        byte[] arr = r1.toByteArray();
+
+        Recurrence r2 = new Recurrence(arr, 0);
+        assertRecurrenceEquals(r1, r2);
+        assertEquals(r1.findRecurrences(-1, 20), r2.findRecurrences(-1, 20));
+    }
+
     private static void assertRecurrenceEquals(Recurrence r1, Recurrence r2) {
         assertEquals(r1.getPeriod(), r2.getPeriod());
         assertEquals(r1.getStartDate(), r2.getStartDate());
@@ -25,8 +25,11 @@ import org.junit.Test;
 
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.TimeZone;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class RecurSettingsTest {
 
@@ -104,4 +107,99 @@ public class RecurSettingsTest {
         assertEquals(r.getPeriod(), Recurrence.NONE);
     }
 
+    @Test
+    public void recur_sub_day_settings() {
+        long startDate = new GregorianCalendar(2018, Calendar.JANUARY, 1, 9, 0).getTimeInMillis();
+        Recurrence r = new Recurrence(startDate, Recurrence.HOURLY);
+        assertEquals(0, r.getDaySetting());
+        assertTrue(r.isRepeatedOnDaysOfWeek(Recurrence.SUNDAY));
+
+        r.setWeeklySetting(Recurrence.MONDAY | Recurrence.TUESDAY);
+        assertEquals(Recurrence.MONDAY | Recurrence.TUESDAY, r.getDaySetting());
+        assertFalse(r.isRepeatedOnDaysOfWeek(Recurrence.SUNDAY));
+        assertFalse(r.isDefault());
+
+        // All days or no days repeats on every day
+        r.setWeeklySetting(Recurrence.EVERY_DAY_OF_WEEK);
+        assertEquals(0, r.getDaySetting());
+        r.setWeeklySetting(0);
+        assertEquals(Recurrence.HOURLY, r.getPeriod());
+        assertTrue(r.setDefault(true).isDefault());
+
+        // Can end on the same day as the start date
+        r.setEndByDate(new GregorianCalendar(2018, Calendar.JANUARY, 1, 12, 0).getTimeInMillis());
+        assertEquals(Recurrence.HOURLY, r.getPeriod());
+        assertEquals(14, r.countOccurrences(startDate, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void recur_time_zone_settings() {
+        // Sunday evening in New York, monday in Tokyo
+        GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        cal.clear();
+        cal.set(2018, Calendar.JANUARY, 1, 3, 0);
+        Recurrence r = new Recurrence(cal.getTimeInMillis(), Recurrence.WEEKLY,
+                TimeZone.getTimeZone("America/New_York"));
+        assertEquals(Recurrence.SUNDAY, r.getDaySetting());
+
+        r.setTimeZone(TimeZone.getTimeZone("Asia/Tokyo"));
+        assertEquals(Recurrence.MONDAY, r.getDaySetting());
+        assertFalse(r.equals(new Recurrence(r).setTimeZone(null)));
+    }
+
+    @Test
+    public void recur_canonicalize() {
+        long startDate = new GregorianCalendar(2018, Calendar.JANUARY, 31, 9, 0).getTimeInMillis();
+
+        // Every 14 days is every 2 weeks on the same day of week
+        Recurrence r1 = new Recurrence(startDate, Recurrence.DAILY).setFrequency(14).canonicalize();
+        Recurrence r2 = new Recurrence(startDate, Recurrence.WEEKLY).setFrequency(2).canonicalize();
+        assertEquals(r1, r2);
+        assertEquals(Recurrence.WEEKLY, r1.getPeriod());
+        assertEquals(Recurrence.WEDNESDAY, r1.getDaySetting());
+
+        // End date is replaced by the number of events
+        long endDate = new GregorianCalendar(2018, Calendar.MAY, 1).getTimeInMillis();
+        r1 = new Recurrence(startDate, Recurrence.MONTHLY).setMonthlySetting(Recurrence.LAST_DAY_OF_MONTH)
+                .setEndByDate(endDate).canonicalize();
+        assertEquals(Recurrence.END_BY_COUNT, r1.getEndType());
+        assertEquals(3, r1.getEndCount());
+
+        // Every 12 months is yearly, and is default once canonical
+        r1 = new Recurrence(startDate, Recurrence.MONTHLY).setFrequency(12).canonicalize();
+        assertEquals(Recurrence.YEARLY, r1.getPeriod());
+        assertEquals(1, r1.getFrequency());
+        assertTrue(r1.isDefault());
+
+        r1 = new Recurrence(startDate, Recurrence.MINUTELY).setFrequency(90).canonicalize();
+        assertEquals(Recurrence.MINUTELY, r1.getPeriod());
+        r1 = new Recurrence(startDate, Recurrence.MINUTELY).setFrequency(120).canonicalize();
+        assertEquals(Recurrence.HOURLY, r1.getPeriod());
+        assertEquals(2, r1.getFrequency());
+    }
+
+    @Test
+    public void recur_fingerprint() {
+        long startDate = new GregorianCalendar(2018, Calendar.JANUARY, 1, 9, 0).getTimeInMillis();
+        Recurrence r = new Recurrence(startDate, Recurrence.WEEKLY)
+                .setWeeklySetting(Recurrence.MONDAY | Recurrence.FRIDAY)
+                .setEndByCount(10);
+        Recurrence byDate = new Recurrence(r).setEndByDate(r.getLastOccurrence());
+        byDate.setDefault(false);
+        assertEquals(r.getFingerprint(), byDate.getFingerprint());
+        assertEquals(r.getFingerprint(), r.toRule().getFingerprint());
+        assertFalse(r.getFingerprint() == new Recurrence(r).setEndByCount(11).getFingerprint());
+        assertFalse(r.getFingerprint() == new Recurrence(r).setStartDate(startDate + 1000).getFingerprint());
+    }
+
+    @Test
+    public void recur_version() {
+        Recurrence r = new Recurrence(System.currentTimeMillis(), Recurrence.DAILY);
+        assertEquals(0, r.getVersion());
+        r.setFrequency(2);
+        r.setEndByCount(5);
+        assertEquals(2, r.getVersion());
+        assertEquals(0, new Recurrence(r).getVersion());
+    }
+
 }
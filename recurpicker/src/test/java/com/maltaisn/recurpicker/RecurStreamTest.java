@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) Nicolas Maltais 2018
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.maltaisn.recurpicker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RecurStreamTest {
+
+    private static final long START = new GregorianCalendar(2018, Calendar.JANUARY, 1, 9, 0).getTimeInMillis();
+    private static final long FROM = new GregorianCalendar(2018, Calendar.MARCH, 1).getTimeInMillis();
+
+    @Test
+    public void stream_merged_in_order() {
+        List<Recurrence> recurrences = Arrays.asList(
+                new Recurrence(START, Recurrence.DAILY).setFrequency(3),
+                new Recurrence(START, Recurrence.WEEKLY).setEndByCount(12),
+                new Recurrence(START, Recurrence.NONE),
+                new Recurrence(START, Recurrence.MONTHLY),
+                new Recurrence(START, Recurrence.HOURLY).setFrequency(17));
+
+        // Expected dates, sorted by date then by recurrence
+        List<long[]> expected = new ArrayList<>();
+        for (int i = 0; i < recurrences.size(); i++) {
+            for (long date : recurrences.get(i).findRecurrences(FROM, 500)) {
+                expected.add(new long[]{date, i});
+            }
+        }
+        Collections.sort(expected, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]);
+            }
+        });
+
+        RecurrenceStream stream = new RecurrenceStream(recurrences, FROM);
+        assertEquals(-1, stream.getIndex());
+        for (int i = 0; i < 500; i++) {
+            assertTrue(stream.next());
+            assertEquals(expected.get(i)[0], stream.getDate());
+            assertEquals(expected.get(i)[1], stream.getIndex());
+        }
+    }
+
+    @Test
+    public void stream_end() {
+        List<Recurrence> recurrences = Arrays.asList(
+                new Recurrence(START, Recurrence.DAILY).setEndByCount(3),
+                new Recurrence(START, Recurrence.DAILY).setEndByCount(2));
+        RecurrenceStream stream = new RecurrenceStream(recurrences, -1);
+        int[] indices = {0, 1, 0, 1, 0};
+        for (int index : indices) {
+            assertTrue(stream.next());
+            assertEquals(index, stream.getIndex());
+        }
+        assertFalse(stream.hasNext());
+        assertFalse(stream.next());
+        assertEquals(-1, stream.getIndex());
+        assertEquals(-1, stream.getDate());
+    }
+
+    @Test
+    public void stream_empty() {
+        RecurrenceStream stream = new RecurrenceStream(Collections.<Recurrence>emptyList(), FROM);
+        assertFalse(stream.next());
+    }
+
+}